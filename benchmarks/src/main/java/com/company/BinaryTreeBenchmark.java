@@ -0,0 +1,163 @@
+package com.company;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The benchmarks of the BinaryTree operations
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Thread)
+public class BinaryTreeBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    int size;
+
+    @Param({"RANDOM", "SORTED", "EQUAL"})
+    Distribution distribution;
+
+    /**
+     * The values the trees are built from
+     */
+    int[] values;
+
+    /**
+     * The complete tree shared by the read-only benchmarks
+     */
+    BinaryTree tree;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        values = distribution.values(size);
+        tree = distribution.tree(values);
+    }
+
+    /**
+     * The tree, which is built anew before every call, for the benchmarks that change it
+     */
+    @State(Scope.Thread)
+    public static class FreshTree {
+        BinaryTree tree;
+
+        /**
+         * The value from the middle of the tree, its removal searches the tree and replaces the node
+         * by the last node of its sub-tree, which makes the tree incomplete unless that node is the last one
+         */
+        int middle;
+
+        @Setup(Level.Invocation)
+        public void setUp(BinaryTreeBenchmark benchmark) {
+            tree = benchmark.distribution.tree(benchmark.values);
+            middle = benchmark.values[benchmark.values.length / 4];
+        }
+    }
+
+    /**
+     * The incomplete tree, which is built anew before every call
+     */
+    @State(Scope.Thread)
+    public static class IncompleteTree {
+        BinaryTree tree;
+
+        @Setup(Level.Invocation)
+        public void setUp(BinaryTreeBenchmark benchmark) {
+            tree = benchmark.distribution.tree(benchmark.values);
+
+            // the first slot of a new level makes the tree incomplete,
+            // unless the last level is full
+            tree.insertNode(0, tree.treeHeight() + 1, 1);
+        }
+    }
+
+    /**
+     * The incomplete tree shared by the read-only benchmarks of the linked nodes
+     */
+    @State(Scope.Thread)
+    public static class SharedIncompleteTree {
+        BinaryTree tree;
+
+        @Setup(Level.Trial)
+        public void setUp(BinaryTreeBenchmark benchmark) {
+            tree = benchmark.distribution.tree(benchmark.values);
+
+            // the first slot of a new level makes the tree incomplete,
+            // unless the last level is full
+            tree.insertNode(0, tree.treeHeight() + 1, 1);
+        }
+    }
+
+    @Benchmark
+    public BinaryTree construct() {
+        return distribution.tree(values);
+    }
+
+    @Benchmark
+    public BinaryTree pushNode() {
+        BinaryTree built = new BinaryTree();
+        for (int value : values) {
+            built.pushNode(value);
+        }
+        return built;
+    }
+
+    @Benchmark
+    public BinaryTree insertNode() {
+        BinaryTree built = new BinaryTree();
+        int level = 1;
+        int interLevelIndex = 1;
+        for (int value : values) {
+            built.insertNode(value, level, interLevelIndex);
+
+            // go to the next free slot in level order
+            if (interLevelIndex == 1 << (level - 1)) {
+                level ++;
+                interLevelIndex = 1;
+            } else {
+                interLevelIndex ++;
+            }
+        }
+        return built;
+    }
+
+    @Benchmark
+    public BinaryTree remove(FreshTree fresh) {
+        fresh.tree.remove(fresh.middle);
+        return fresh.tree;
+    }
+
+    @Benchmark
+    public BinaryTree restoreCompleteness(IncompleteTree incomplete) {
+        incomplete.tree.restore();
+        return incomplete.tree;
+    }
+
+    @Benchmark
+    public int[] getValuesOfTheTree() {
+        return tree.getValuesOfTheTree();
+    }
+
+    @Benchmark
+    public int[] getValuesOfTheIncompleteTree(SharedIncompleteTree incomplete) {
+        return incomplete.tree.getValuesOfTheTree();
+    }
+
+    @Benchmark
+    public int queries() {
+        return tree.size() + tree.treeHeight() + (tree.isCompleteTree() ? 1 : 0);
+    }
+}
@@ -0,0 +1,87 @@
+package com.company;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The contention benchmarks of the shared heaps, the number of threads is set
+ * with the JMH option, for example {@code -t 1}, {@code -t 8} or {@code -t 64}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class ConcurrentHeapBenchmark {
+
+    @Param({"1000", "1000000"})
+    int size;
+
+    /**
+     * The heap shared by all the threads
+     */
+    ConcurrentHeap concurrentHeap;
+
+    /**
+     * The heap shared by all the threads behind a single lock
+     */
+    Heap lockedHeap;
+
+    /**
+     * The relaxed queue shared by all the threads
+     */
+    MultiQueue multiQueue;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        int[] values = Distribution.RANDOM.values(size);
+        concurrentHeap = new ConcurrentHeap(values);
+        lockedHeap = new Heap(values);
+        multiQueue = new MultiQueue();
+        for (int value : values) {
+            multiQueue.offer(value);
+        }
+    }
+
+    /**
+     * The values added by each thread
+     */
+    @State(Scope.Thread)
+    public static class ThreadValues {
+        SplittableRandom random = new SplittableRandom(Distribution.SEED);
+    }
+
+    @Benchmark
+    public int concurrentHeap(ThreadValues values) {
+        concurrentHeap.offer(values.random.nextInt());
+        return concurrentHeap.poll();
+    }
+
+    @Benchmark
+    public int multiQueue(ThreadValues values) {
+        multiQueue.offer(values.random.nextInt());
+        return multiQueue.poll();
+    }
+
+    @Benchmark
+    public int lockedHeap(ThreadValues values) {
+        int value = values.random.nextInt();
+        synchronized (lockedHeap) {
+            lockedHeap.offer(value);
+            return lockedHeap.poll();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.company;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The comparison of the d-ary heaps with the binary Heap on the large inputs
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Thread)
+public class DaryHeapBenchmark {
+
+    @Param({"1000000", "10000000", "100000000"})
+    int size;
+
+    /**
+     * The number of children of each node, 0 stands for the binary Heap
+     */
+    @Param({"0", "2", "4", "8"})
+    int arity;
+
+    /**
+     * The random values the heaps are built from
+     */
+    int[] values;
+
+    /**
+     * The binary heap used by the operations benchmarks
+     */
+    Heap binary;
+
+    /**
+     * The d-ary heap used by the operations benchmarks
+     */
+    DaryHeap dary;
+
+    /**
+     * The counter used to pick the values
+     */
+    int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        values = Distribution.RANDOM.values(size);
+    }
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        binary = null;
+        dary = null;
+        if (arity == 0) {
+            binary = new Heap(values);
+        } else {
+            dary = new DaryHeap(arity, values);
+        }
+        next = 0;
+    }
+
+    @Benchmark
+    public Object construct() {
+        return arity == 0 ? new Heap(values) : new DaryHeap(arity, values);
+    }
+
+    /**
+     * The poll-heavy load, every removed value is replaced, so the size stays the same
+     */
+    @Benchmark
+    public int pollOffer() {
+        int value = values[next++ % values.length];
+        if (dary != null) {
+            int top = dary.poll();
+            dary.offer(value);
+            return top;
+        }
+        int top = binary.poll();
+        binary.offer(value);
+        return top;
+    }
+
+    @Benchmark
+    public int replaceTop() {
+        int value = values[next++ % values.length];
+        return dary != null ? dary.replaceTop(value) : binary.replaceTop(value);
+    }
+}
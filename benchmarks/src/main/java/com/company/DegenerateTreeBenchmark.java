@@ -0,0 +1,149 @@
+package com.company;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The benchmarks of the traversals of the deep, skewed trees, which are made of long chains
+ * of nodes and would overflow the call stack of the recursive traversals
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Thread)
+public class DegenerateTreeBenchmark {
+
+    /**
+     * The shapes of the trees
+     */
+    public enum Shape {
+        /**
+         * Every node has the left child only
+         */
+        LEFT_CHAIN,
+
+        /**
+         * Every node has the right child only
+         */
+        RIGHT_CHAIN,
+
+        /**
+         * The nodes have the left and the right child in turn
+         */
+        ZIGZAG,
+
+        /**
+         * The chain of the left children, each of them has the right leaf
+         */
+        CATERPILLAR
+    }
+
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    @Param({"LEFT_CHAIN", "RIGHT_CHAIN", "ZIGZAG", "CATERPILLAR"})
+    Shape shape;
+
+    /**
+     * The tree of the shape
+     */
+    BinaryTree tree;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        int[] values = Distribution.RANDOM.values(size);
+        tree = new BinaryTree();
+        tree.link(values, size, bits(shape, size), height(shape, size));
+    }
+
+    /**
+     * Used to get the bits of the shape, two bits for each node in level order,
+     * the lower one is set if the node has the left child, the upper one if it has the right child
+     * @param shape the shape of the tree
+     * @param size the number of nodes
+     * @return the bits of the shape
+     */
+    static long[] bits(Shape shape, int size) {
+        long[] bits = new long[(int) ((2L * size + 63) >>> 6)];
+        if (shape == Shape.CATERPILLAR) {
+            // level order goes: the spine node, then its two children, the spine one first
+            for (long node = 0, next = 1; next < size; node += 2, next += 2) {
+                set(bits, 2 * node);
+                if (next + 1 < size) {
+                    set(bits, 2 * node + 1);
+                }
+            }
+            return bits;
+        }
+        for (long node = 0; node < size - 1; node++) {
+            boolean left = shape == Shape.LEFT_CHAIN || (shape == Shape.ZIGZAG && node % 2 == 0);
+            set(bits, 2 * node + (left ? 0 : 1));
+        }
+        return bits;
+    }
+
+    /**
+     * Used to get the number of levels of the shape, the caterpillar has the leaf
+     * next to each spine node, the other shapes are chains
+     * @param shape the shape of the tree
+     * @param size the number of nodes
+     * @return the height of the tree
+     */
+    static int height(Shape shape, int size) {
+        return shape == Shape.CATERPILLAR ? 1 + size / 2 : size;
+    }
+
+    /**
+     * Used to set the bit
+     * @param bits the bits
+     * @param bit the index of the bit
+     */
+    static void set(long[] bits, long bit) {
+        bits[(int) (bit >>> 6)] |= 1L << bit;
+    }
+
+    @Benchmark
+    public int recomputeShape() {
+        tree.recomputeShape();
+        return tree.treeHeight();
+    }
+
+    @Benchmark
+    public int getSize() {
+        return tree.getSize(tree.root);
+    }
+
+    @Benchmark
+    public int[] getValuesOfTheTree() {
+        return tree.getValuesOfTheTree();
+    }
+
+    @Benchmark
+    public long inOrderSum() {
+        return tree.stream(BinaryTree.Traversal.IN_ORDER).asLongStream().sum();
+    }
+
+    /**
+     * The prefix of each line grows with the level, so the chains are rendered
+     * to the limited depth, otherwise the text is quadratic in the size
+     */
+    @Benchmark
+    public void renderTree() throws IOException {
+        tree.renderTree(Writer.nullWriter(), 1000, Long.MAX_VALUE);
+    }
+}
@@ -0,0 +1,52 @@
+package com.company;
+
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * The distribution of the values used to fill the benchmarked trees
+ */
+public enum Distribution {
+    RANDOM,
+    SORTED,
+    EQUAL;
+
+    /**
+     * The seed of the random values, so that every run gets the same input
+     */
+    static final long SEED = 42;
+
+    /**
+     * Generate the values of the distribution
+     * @param size the number of values
+     * @return the int array of the values
+     */
+    int[] values(int size) {
+        switch (this) {
+            case RANDOM:
+                return new SplittableRandom(SEED).ints(size).toArray();
+            case SORTED:
+                return IntStream.range(0, size).toArray();
+            default:
+                return new BinaryTree(0, size).getValuesOfTheTree();
+        }
+    }
+
+    /**
+     * Create the tree with the values of the distribution
+     * @param values the values generated by this distribution
+     * @return the created tree
+     */
+    BinaryTree tree(int[] values) {
+        return this == EQUAL ? new BinaryTree(0, values.length) : new BinaryTree(values);
+    }
+
+    /**
+     * Create the heap with the values of the distribution
+     * @param values the values generated by this distribution
+     * @return the created heap
+     */
+    Heap heap(int[] values) {
+        return this == EQUAL ? new Heap(0, values.length) : new Heap(values);
+    }
+}
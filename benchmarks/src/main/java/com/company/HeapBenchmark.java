@@ -0,0 +1,145 @@
+package com.company;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The benchmarks of the Heap operations
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Thread)
+public class HeapBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    int size;
+
+    @Param({"RANDOM", "SORTED", "EQUAL"})
+    Distribution distribution;
+
+    /**
+     * The values the heaps are built from
+     */
+    int[] values;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        values = distribution.values(size);
+    }
+
+    /**
+     * The heap of the operations benchmark and its operation mix, the mix is the parameter
+     * of this state only, so the other benchmarks don't run for each mix
+     */
+    @State(Scope.Thread)
+    public static class OperationMix {
+
+        /**
+         * The operation mix, each mix keeps the size of the heap
+         */
+        @Param({"OFFER_POLL", "REPLACE_TOP", "REMOVE_OFFER"})
+        String mix;
+
+        Heap heap;
+
+        /**
+         * The counter used to pick the values and alternate the operations
+         */
+        int next;
+
+        @Setup(Level.Iteration)
+        public void reset(HeapBenchmark benchmark) {
+            heap = benchmark.distribution.heap(benchmark.values);
+            next = 0;
+        }
+    }
+
+    /**
+     * The incomplete heap, which is built anew before every call
+     */
+    @State(Scope.Thread)
+    public static class IncompleteHeap {
+        Heap heap;
+
+        @Setup(Level.Invocation)
+        public void setUp(HeapBenchmark benchmark) {
+            heap = benchmark.distribution.heap(benchmark.values);
+
+            // the first slot of a new level makes the heap incomplete,
+            // unless the last level is full
+            heap.insertNode(0, heap.treeHeight() + 1, 1);
+        }
+    }
+
+    /**
+     * Two heaps of the same size, which are built anew before every call
+     */
+    @State(Scope.Thread)
+    public static class HeapPair {
+        Heap first;
+        Heap second;
+
+        @Setup(Level.Invocation)
+        public void setUp(HeapBenchmark benchmark) {
+            first = benchmark.distribution.heap(benchmark.values);
+            second = benchmark.distribution.heap(benchmark.values);
+        }
+    }
+
+    @Benchmark
+    public Heap construct() {
+        return distribution.heap(values);
+    }
+
+    @Benchmark
+    public Heap sortedOf() {
+        return Heap.sortedOf(values);
+    }
+
+    @Benchmark
+    public int operations(OperationMix state) {
+        Heap heap = state.heap;
+        int value = values[state.next++ % values.length];
+        switch (state.mix) {
+            case "OFFER_POLL":
+                if ((state.next & 1) == 0) {
+                    heap.offer(value);
+                    return value;
+                }
+                return heap.poll();
+            case "REPLACE_TOP":
+                return heap.replaceTop(value);
+            default:
+                int top = heap.peek();
+                heap.remove(top);
+                heap.offer(value);
+                return top;
+        }
+    }
+
+    @Benchmark
+    public Heap restore(IncompleteHeap incomplete) {
+        incomplete.heap.restore();
+        return incomplete.heap;
+    }
+
+    @Benchmark
+    public Heap meld(HeapPair pair) {
+        pair.first.meld(pair.second);
+        return pair.first;
+    }
+}
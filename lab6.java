@@ -1,8 +1,49 @@
 package com.company;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanParameterInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
 
 
 /**
@@ -15,7 +56,7 @@ class BinaryTree {
     /**
      * Inner class node for storing elements of tree
      */
-    protected class Node {
+    protected static class Node {
 
         /**
          * The value of the node
@@ -43,698 +84,6435 @@ class BinaryTree {
             left = null;
         }
 
+    }
+
+    /**
+     * Inner class for the array-based circular queue of nodes, it is reused
+     * by the level order traversals, so that they don't allocate
+     */
+    protected class NodeQueue {
+
         /**
-         * Used to call print method with parameters
+         * The storage of the queue, its length is always a power of two
          */
-        void print() {
-            if (this == null) {
-                System.out.println("The tree is empty");
-                return;
+        Node[] nodes;
+
+        /**
+         * The position of the first node in the storage
+         */
+        int head;
+
+        /**
+         * The number of nodes in the queue
+         */
+        int count;
+
+        /**
+         * Specify if the queue is taken by the traversal, which is not finished yet
+         */
+        boolean busy;
+
+        /**
+         * The number of nodes taken away by the traversal, they are added to the visited nodes on release
+         */
+        int taken;
+
+        /**
+         * The level-order positions of the queued nodes, allocated only for the traversals following the positions
+         */
+        long[] positions;
+
+        /**
+         * The levels of the queued nodes, allocated together with the positions
+         */
+        int[] depths;
+
+        /**
+         * The position of the node, which was taken away last
+         */
+        long position;
+
+        /**
+         * The level of the node, which was taken away last
+         */
+        int depth;
+
+        /**
+         * The constructor for NodeQueue class
+         * @param capacity the number of nodes the queue can hold without growing
+         */
+        NodeQueue(int capacity) {
+            nodes = new Node[Math.max(Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1, 2)];
+        }
+
+        /**
+         * Add the node to the end of the queue
+         * @param node the node to be added
+         */
+        void add(Node node) {
+            if (count == nodes.length) {
+                grow();
+            }
+            nodes[(head + count) & (nodes.length - 1)] = node;
+            count ++;
+        }
+
+        /**
+         * Add the node to the end of the queue together with its place in the tree
+         * @param node the node to be added
+         * @param position the level-order position of the node
+         * @param depth the level of the node
+         */
+        void add(Node node, long position, int depth) {
+            if (positions == null) {
+                positions = new long[nodes.length];
+                depths = new int[nodes.length];
+            }
+            if (count == nodes.length) {
+                grow();
+            }
+            int slot = (head + count) & (nodes.length - 1);
+            nodes[slot] = node;
+            positions[slot] = position;
+            depths[slot] = depth;
+            count ++;
+        }
+
+        /**
+         * Take away the node from the beginning of the queue
+         * @return the removed node
+         */
+        Node remove() {
+            Node node = nodes[head];
+            taken ++;
+            if (positions != null) {
+                position = positions[head];
+                depth = depths[head];
             }
-            print("", this, false, true);
+
+            // drop the reference, so that the removed nodes can be collected
+            nodes[head] = null;
+            head = (head + 1) & (nodes.length - 1);
+            count --;
+            return node;
+        }
+
+        /**
+         * Check if the queue is empty
+         * @return the boolean value indicating whether the queue is empty
+         */
+        boolean isEmpty() {
+            return count == 0;
+        }
+
+        /**
+         * Get the number of nodes in the queue
+         * @return the number of nodes
+         */
+        int size() {
+            return count;
         }
 
         /**
-         * Used to print the tree or any subtree, this method is called by renderTree method
-         * @param prefix the prefix to be printed
-         * @param n the root node
-         * @param isLeft specify if the node is the left sub-tree
-         * @param isRoot specify if the node is the tree's root
+         * Used to finish the traversal, the nodes left in the queue are dropped,
+         * so that they can be collected, and the queue can be taken again
          */
-        void print(String prefix, Node n, boolean isLeft, boolean isRoot) {
-            if (n != null) {
-                if (isRoot){
-                    System.out.println("root:" + n.value + " _");
-                } else
-                    System.out.println (prefix + "  ╰–– " + (isLeft ? "l:": "r:") + n.value);
-                print(prefix + (isLeft ? "  |   ": "      "), n.left, true, false);
-                print(prefix + (isLeft ? "  |   ": "      "), n.right, false, false);
+        void release() {
+            while (count > 0) {
+                nodes[head] = null;
+                head = (head + 1) & (nodes.length - 1);
+                count --;
             }
+            head = 0;
+            busy = false;
+            visited += taken;
+            taken = 0;
         }
 
+        /**
+         * Double the storage, keeping the order of the nodes
+         */
+        private void grow() {
+            Node[] grown = new Node[nodes.length * 2];
+            long[] grownPositions = positions == null ? null : new long[grown.length];
+            int[] grownDepths = positions == null ? null : new int[grown.length];
+            for (int i = 0; i < count; i++) {
+                int slot = (head + i) & (nodes.length - 1);
+                grown[i] = nodes[slot];
+                if (positions != null) {
+                    grownPositions[i] = positions[slot];
+                    grownDepths[i] = depths[slot];
+                }
+            }
+            nodes = grown;
+            positions = grownPositions;
+            depths = grownDepths;
+            head = 0;
+        }
     }
+
     /**
-     * Constructor to initialize the tree with an array
-     * @param values the values to initialize the tree with
+     * Inner class for the iterative depth-first walk over the linked nodes, the pending nodes are kept
+     * on the explicit stack with their positions and levels, so the long chains of nodes don't overflow
+     * the call stack, and a single walk counts the size, the height and the misplaced nodes together
      */
-     public BinaryTree(int[] values){
-        for (int value: values){
-            pushNode(value);
+    protected class ShapeWalk {
+
+        /**
+         * The pending nodes, the next one on top
+         */
+        Node[] nodes = new Node[DEFAULT_CAPACITY];
+
+        /**
+         * The level-order positions of the pending nodes
+         */
+        long[] positions = new long[DEFAULT_CAPACITY];
+
+        /**
+         * The levels of the pending nodes, starting from 1
+         */
+        int[] depths = new int[DEFAULT_CAPACITY];
+
+        /**
+         * The number of pending nodes
+         */
+        int top;
+
+        /**
+         * The number of nodes of the walked sub-tree
+         */
+        int count;
+
+        /**
+         * The number of levels of the walked sub-tree
+         */
+        int levels;
+
+        /**
+         * The number of nodes of the walked sub-tree, whose position is not less than the size of the tree
+         */
+        int misplaced;
+
+        /**
+         * Walk through the sub-tree and count its size, height and misplaced nodes
+         * @param start the root node of the sub-tree
+         * @param position the level-order position of the root node
+         */
+        void walk(Node start, long position) {
+            walk(start, position, 1, 0);
         }
-     }
 
-     /**
-      * Constructor to initialize the tree with the values
-      * @param fillWith the value to initialize the tree with
-      * @param size specify haw many nodes to initialize with the value (the size of the tree)
-      */
-     public BinaryTree(int fillWith, int size){
-        for (int i = 0; i < size; i++){
-            pushNode(fillWith);
+        /**
+         * Walk through the sub-tree and count its size, height and misplaced nodes,
+         * the nodes are also added to the number of nodes on their levels
+         * @param start the root node of the sub-tree
+         * @param position the level-order position of the root node
+         * @param level the level of the root node
+         * @param change the number added to the level of each node, 0 leaves the levels as they are
+         */
+        void walk(Node start, long position, int level, int change) {
+            count = 0;
+            levels = 0;
+            misplaced = 0;
+            push(start, position, level);
+
+            while (top > 0) {
+                Node node = nodes[--top];
+                long index = positions[top];
+                int depth = depths[top];
+                // drop the reference, so that the walk doesn't keep the nodes
+                nodes[top] = null;
+
+                count ++;
+                levels = Math.max(levels, depth);
+                if (change != 0) {
+                    countLevel(depth, change);
+                }
+
+                // the children of the misplaced node are misplaced as well, so
+                // their positions are not computed to avoid the overflow
+                boolean inside = index < size;
+                if (!inside) {
+                    misplaced ++;
+                }
+                push(node.right, inside ? 2 * index + 2 : index, depth + 1);
+                push(node.left, inside ? 2 * index + 1 : index, depth + 1);
+            }
+            visited += count;
         }
-     }
 
-    /**
-     * A default constructor
-     */
-    public BinaryTree(){
+        /**
+         * Used to push the node to the stack, the missing nodes are skipped
+         * @param node the node
+         * @param position the level-order position of the node
+         * @param depth the level of the node
+         */
+        void push(Node node, long position, int depth) {
+            if (node == null) {
+                return;
+            }
+            if (top == nodes.length) {
+                nodes = Arrays.copyOf(nodes, top * 2);
+                positions = Arrays.copyOf(positions, top * 2);
+                depths = Arrays.copyOf(depths, top * 2);
+            }
+            nodes[top] = node;
+            positions[top] = position;
+            depths[top++] = depth;
+        }
     }
 
     /**
-     * The root node of the tree
+     * Inner class for the counted values, it is an open-addressing hash table from the value
+     * to the number of its occurrences, it holds the lazily removed occurrences, which are
+     * still stored in the tree, and all the stored occurrences
      */
-    protected Node root;
+    protected static class ValueCounts {
 
-    /**
-     * The size of the tree
-     */
-    protected int size = 0;
+        /**
+         * The values of the table slots
+         */
+        int[] keys = new int[16];
+
+        /**
+         * The number of occurrences for each table slot
+         */
+        int[] counts = new int[16];
+
+        /**
+         * Specify if the table slot is taken
+         */
+        boolean[] used = new boolean[16];
+
+        /**
+         * The number of taken table slots
+         */
+        int occupied;
+
+        /**
+         * The number of occurrences of all values
+         */
+        int total;
+
+        /**
+         * Find the table slot of the value or the empty slot where it should be
+         * @param value the value to search for
+         * @return the slot
+         */
+        int slot(int value) {
+            int h = value * 0x9E3779B9;
+            int i = (h ^ (h >>> 16)) & (keys.length - 1);
+            while (used[i] && keys[i] != value) {
+                i = (i + 1) & (keys.length - 1);
+            }
+            return i;
+        }
+
+        /**
+         * Get the number of occurrences of the value
+         * @param value the value
+         * @return the number of occurrences
+         */
+        int count(int value) {
+            if (total == 0) {
+                return 0;
+            }
+            int i = slot(value);
+            return used[i] ? counts[i] : 0;
+        }
+
+        /**
+         * Add the occurrence of the value
+         * @param value the value
+         */
+        void add(int value) {
+            // the table is kept at most half full
+            if (2 * (occupied + 1) > keys.length) {
+                grow();
+            }
+            int i = slot(value);
+            if (!used[i]) {
+                used[i] = true;
+                keys[i] = value;
+                occupied ++;
+            }
+            counts[i] ++;
+            total ++;
+        }
+
+        /**
+         * Take away the occurrence of the value, if there is any
+         * @param value the value
+         * @return the boolean value indicating whether the occurrence was taken away
+         */
+        boolean take(int value) {
+            if (total == 0) {
+                return false;
+            }
+            int i = slot(value);
+            if (!used[i] || counts[i] == 0) {
+                return false;
+            }
+            counts[i] --;
+            total --;
+            return true;
+        }
+
+        /**
+         * Double the table if the slots with occurrences fill its half,
+         * the slots without them are dropped
+         */
+        void grow() {
+            int[] oldKeys = keys;
+            int[] oldCounts = counts;
+            boolean[] oldUsed = used;
+            int live = 0;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldUsed[j] && oldCounts[j] > 0) {
+                    live ++;
+                }
+            }
+            int length = 2 * (live + 1) > oldKeys.length ? oldKeys.length * 2 : oldKeys.length;
+            keys = new int[length];
+            counts = new int[length];
+            used = new boolean[length];
+            occupied = 0;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldUsed[j] && oldCounts[j] > 0) {
+                    int i = slot(oldKeys[j]);
+                    used[i] = true;
+                    keys[i] = oldKeys[j];
+                    counts[i] = oldCounts[j];
+                    occupied ++;
+                }
+            }
+        }
+
+        /**
+         * Remove all occurrences from the table
+         */
+        void clear() {
+            if (occupied > 0) {
+                Arrays.fill(used, false);
+                Arrays.fill(counts, 0);
+            }
+            occupied = 0;
+            total = 0;
+        }
+
+        /**
+         * Get the copy of the table, so that the occurrences can be taken away from it
+         * by the traversal, leaving this table as it is
+         * @return the copy
+         */
+        ValueCounts copy() {
+            ValueCounts copy = new ValueCounts();
+            copy.keys = keys.clone();
+            copy.counts = counts.clone();
+            copy.used = used.clone();
+            copy.occupied = occupied;
+            copy.total = total;
+            return copy;
+        }
+    }
 
     /**
-     * Used to disconnect a specified node from the tree if present
-     * @param nodeToRemove the node to disconnect from the tree
+     * Inner class for the index of the level-order positions by value, it is an open-addressing
+     * hash table from the value to the first position of the chain of its positions,
+     * the chains of the duplicates are linked through the arrays indexed by the position
      */
-    protected void disconnectNode(Node nodeToRemove){
-        if (root == null) {
-            return;
-        }
+    protected class ValueIndex {
 
-        // iterate through the tree using BFS
-        Queue<Node> nodes = new LinkedList<>();
-        nodes.add(root);
+        /**
+         * The values of the table slots
+         */
+        int[] keys;
 
-        while (!nodes.isEmpty()) {
+        /**
+         * The first position of the chain for each table slot, -1 if the slot is empty
+         */
+        int[] heads;
 
-            Node node = nodes.remove();
+        /**
+         * The number of the distinct values in the table
+         */
+        int count;
 
-            // when the specified node if found, delete the
-            // reference of it
-            if (node.left != null) {
-                if (node.left == nodeToRemove){
-                    node.left = null;
-                    size -- ;
-                    return;
+        /**
+         * The next position of the chain for each position, -1 at the end
+         */
+        int[] next;
+
+        /**
+         * The previous position of the chain for each position, -1 at the beginning
+         */
+        int[] prev;
+
+        /**
+         * The constructor for ValueIndex class
+         * @param capacity the number of positions to be indexed
+         */
+        ValueIndex(int capacity) {
+            int slots = Math.max(Integer.highestOneBit(Math.max(capacity, 8)) << 2, 16);
+            keys = new int[slots];
+            heads = new int[slots];
+            Arrays.fill(heads, -1);
+            next = new int[capacity];
+            prev = new int[capacity];
+        }
+
+        /**
+         * Get the preferred table slot of the value
+         * @param value the value
+         * @return the slot
+         */
+        int hash(int value) {
+            int h = value * 0x9E3779B9;
+            return (h ^ (h >>> 16)) & (keys.length - 1);
+        }
+
+        /**
+         * Find the table slot of the value
+         * @param value the value to search for
+         * @return the slot or -1 if the value is not present
+         */
+        int find(int value) {
+            for (int i = hash(value); heads[i] != -1; i = (i + 1) & (keys.length - 1)) {
+                if (keys[i] == value) {
+                    return i;
                 }
-                nodes.add(node.left);
             }
+            return -1;
+        }
 
-            if (node.right != null) {
-                if (node.right == nodeToRemove){
-                    node.right = null;
-                    size -- ;
-                    return;
+        /**
+         * Get the first level-order position of the value
+         * @param value the value to search for
+         * @return the least position of the value or -1 if not present
+         */
+        int first(int value) {
+            int slot = find(value);
+            if (slot < 0) {
+                return -1;
+            }
+
+            // the chain is not ordered, the duplicates are usually few
+            int result = heads[slot];
+            for (int position = next[result]; position != -1; position = next[position]) {
+                result = Math.min(result, position);
+            }
+            return result;
+        }
+
+        /**
+         * Get any level-order position of the value, it is the beginning of the chain
+         * @param value the value to search for
+         * @return the position of the value or -1 if not present
+         */
+        int any(int value) {
+            int slot = find(value);
+            return slot < 0 ? -1 : heads[slot];
+        }
+
+        /**
+         * Add the position of the value
+         * @param value the value
+         * @param position the position of the value
+         */
+        void add(int value, int position) {
+            int i = hash(value);
+            while (heads[i] != -1 && keys[i] != value) {
+                i = (i + 1) & (keys.length - 1);
+            }
+
+            prev[position] = -1;
+            if (heads[i] == -1) {
+                // the first occurrence of the value
+                keys[i] = value;
+                heads[i] = position;
+                next[position] = -1;
+                if (++count * 2 > keys.length) {
+                    rehash();
                 }
-                nodes.add(node.right);
+            } else {
+                // put the position to the beginning of the chain
+                next[position] = heads[i];
+                prev[heads[i]] = position;
+                heads[i] = position;
+            }
+        }
+
+        /**
+         * Delete the position of the value
+         * @param value the value
+         * @param position the position of the value
+         */
+        void delete(int value, int position) {
+            int before = prev[position];
+            int after = next[position];
+            if (after != -1) {
+                prev[after] = before;
+            }
+            if (before != -1) {
+                next[before] = after;
+                return;
+            }
+
+            // the position was the beginning of the chain
+            int slot = find(value);
+            if (after != -1) {
+                heads[slot] = after;
+            } else {
+                deleteSlot(slot);
+            }
+        }
+
+        /**
+         * Replace the position of the value with another one
+         * @param value the value
+         * @param from the current position of the value
+         * @param to the new position of the value
+         */
+        void move(int value, int from, int to) {
+            int before = prev[from];
+            int after = next[from];
+            prev[to] = before;
+            next[to] = after;
+            if (after != -1) {
+                prev[after] = to;
             }
+            if (before != -1) {
+                next[before] = to;
+            } else {
+                heads[find(value)] = to;
+            }
+        }
+
+        /**
+         * Grow the arrays of the chains, so that they can hold the specified number of positions
+         * @param capacity the required capacity
+         */
+        void ensurePositions(int capacity) {
+            if (capacity > next.length) {
+                next = Arrays.copyOf(next, capacity);
+                prev = Arrays.copyOf(prev, capacity);
+            }
+        }
+
+        /**
+         * Empty the table slot, moving back the following slots of the same cluster,
+         * so that the search doesn't stop too early
+         * @param slot the slot to be emptied
+         */
+        private void deleteSlot(int slot) {
+            heads[slot] = -1;
+            count --;
+
+            int mask = keys.length - 1;
+            for (int j = (slot + 1) & mask; heads[j] != -1; j = (j + 1) & mask) {
+                int preferred = hash(keys[j]);
+
+                // the value stays, if its preferred slot is cyclically in (slot, j]
+                boolean stays = slot <= j
+                        ? slot < preferred && preferred <= j
+                        : slot < preferred || preferred <= j;
+                if (!stays) {
+                    keys[slot] = keys[j];
+                    heads[slot] = heads[j];
+                    heads[j] = -1;
+                    slot = j;
+                }
+            }
+        }
+
+        /**
+         * Double the table, the chains stay as they are
+         */
+        private void rehash() {
+            int[] oldKeys = keys;
+            int[] oldHeads = heads;
+            keys = new int[oldKeys.length * 2];
+            heads = new int[oldHeads.length * 2];
+            Arrays.fill(heads, -1);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldHeads[i] != -1) {
+                    int j = hash(oldKeys[i]);
+                    while (heads[j] != -1) {
+                        j = (j + 1) & (keys.length - 1);
+                    }
+                    keys[j] = oldKeys[i];
+                    heads[j] = oldHeads[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * The interface for collecting the changes of the batch
+     */
+    public interface Mutator {
+
+        /**
+         * Add the value to the tree
+         * @param value the value to be added
+         */
+        void push(int value);
+
+        /**
+         * Remove one occurrence of the value from the tree, if present
+         * @param value the value to be removed
+         */
+        void remove(int value);
+    }
+
+    /**
+     * Inner class for the changes of the batch in the order they were made
+     */
+    protected class Batch implements Mutator {
+
+        /**
+         * The values of the changes
+         */
+        int[] values = new int[DEFAULT_CAPACITY];
+
+        /**
+         * Specify if the change is a removal (true) or an addition (false)
+         */
+        boolean[] removals = new boolean[DEFAULT_CAPACITY];
+
+        /**
+         * The number of the changes
+         */
+        int count;
+
+        @Override
+        public void push(int value) {
+            add(value, false);
+        }
+
+        @Override
+        public void remove(int value) {
+            add(value, true);
+        }
+
+        /**
+         * Used to record the change
+         * @param value the value of the change
+         * @param removal specify if the change is a removal
+         */
+        void add(int value, boolean removal) {
+            if (count == values.length) {
+                values = Arrays.copyOf(values, count * 2);
+                removals = Arrays.copyOf(removals, count * 2);
+            }
+            values[count] = value;
+            removals[count] = removal;
+            count ++;
+        }
+    }
+
+    /**
+     * The orders in which the values of the tree can be iterated
+     */
+    public enum Traversal {
+        LEVEL_ORDER, PRE_ORDER, IN_ORDER
+    }
+
+    /**
+     * Inner class for the spliterator of the pre-order or in-order traversal, it keeps the stack
+     * of the pending sub-trees and single nodes, the next one on top, and is split by giving away
+     * the upper part of the stack, so the parts are disjoint sub-trees in the right order,
+     * in array mode the sizes of the sub-trees are exact, so the parts are SIZED and SUBSIZED
+     */
+    protected class SubtreeSpliterator implements Spliterator.OfInt {
+
+        /**
+         * Specify if the values are iterated in order, otherwise in pre-order
+         */
+        final boolean inOrder;
+
+        /**
+         * The positions of the pending items in array mode
+         */
+        int[] positions;
+
+        /**
+         * The pending items in linked mode
+         */
+        Node[] nodes;
+
+        /**
+         * Specify if the item is the single node (true) or the whole sub-tree (false)
+         */
+        boolean[] single;
+
+        /**
+         * The number of pending items
+         */
+        int top;
+
+        /**
+         * The number of values left, it's an estimate when the spliterator is not sized
+         */
+        long remaining;
+
+        /**
+         * Specify if the number of values left is exact
+         */
+        boolean sized = true;
+
+        /**
+         * The constructor for SubtreeSpliterator class, which iterates through the whole tree
+         * @param inOrder specify if the values are iterated in order, otherwise in pre-order
+         */
+        SubtreeSpliterator(boolean inOrder) {
+            this(inOrder, 2 * treeHeight() + 2);
+            remaining = size;
+            if (implicit) {
+                pushPosition(0, false);
+            } else {
+                pushNode(root, false);
+            }
+        }
+
+        /**
+         * The constructor for the empty SubtreeSpliterator
+         * @param inOrder specify if the values are iterated in order, otherwise in pre-order
+         * @param capacity the number of items the stack can hold without growing
+         */
+        SubtreeSpliterator(boolean inOrder, int capacity) {
+            this.inOrder = inOrder;
+            if (implicit) {
+                positions = new int[Math.max(capacity, 2)];
+            } else {
+                nodes = new Node[Math.max(capacity, 2)];
+            }
+            single = new boolean[Math.max(capacity, 2)];
+        }
+
+        /**
+         * Used to make sure one more item fits the stack
+         */
+        void grow() {
+            if (top == single.length) {
+                single = Arrays.copyOf(single, top * 2);
+                if (positions != null) {
+                    positions = Arrays.copyOf(positions, top * 2);
+                } else {
+                    nodes = Arrays.copyOf(nodes, top * 2);
+                }
+            }
+        }
+
+        /**
+         * Used to push the item to the stack, the positions out of the tree are skipped
+         * @param position the position of the node
+         * @param isSingle specify if the item is the single node, otherwise the whole sub-tree
+         */
+        void pushPosition(long position, boolean isSingle) {
+            if (position < size) {
+                grow();
+                positions[top] = (int) position;
+                single[top++] = isSingle;
+            }
+        }
+
+        /**
+         * Used to push the item to the stack, the missing nodes are skipped
+         * @param node the node
+         * @param isSingle specify if the item is the single node, otherwise the whole sub-tree
+         */
+        void pushNode(Node node, boolean isSingle) {
+            if (node != null) {
+                grow();
+                nodes[top] = node;
+                single[top++] = isSingle;
+            }
+        }
+
+        /**
+         * Used to replace the sub-tree on top of the stack with its root and the sub-trees
+         * of its children, the root is pushed as the single node
+         */
+        void expand() {
+            top--;
+            if (positions != null) {
+                long position = positions[top];
+                pushPosition(2 * position + 2, false);
+                if (inOrder) {
+                    pushPosition(position, true);
+                    pushPosition(2 * position + 1, false);
+                } else {
+                    pushPosition(2 * position + 1, false);
+                    pushPosition(position, true);
+                }
+            } else {
+                Node node = nodes[top];
+                pushNode(node.right, false);
+                if (inOrder) {
+                    pushNode(node, true);
+                    pushNode(node.left, false);
+                } else {
+                    pushNode(node.left, false);
+                    pushNode(node, true);
+                }
+            }
+        }
+
+        /**
+         * Used to get the number of values of the item in array mode
+         * @param item the index of the item in the stack
+         * @return the number of values of the single node or the sub-tree
+         */
+        long itemSize(int item) {
+            if (single[item]) {
+                return 1;
+            }
+
+            // count the positions of the sub-tree level by level
+            long count = 0;
+            for (long first = positions[item], last = first; first < size; first = 2 * first + 1, last = 2 * last + 2) {
+                count += Math.min(last, size - 1) - first + 1;
+            }
+            return count;
+        }
+
+        @Override
+        public boolean tryAdvance(IntConsumer action) {
+            while (top > 0) {
+                if (!single[top - 1]) {
+                    expand();
+                    continue;
+                }
+                top--;
+                remaining = Math.max(remaining - 1, 0);
+                action.accept(positions != null ? elements[positions[top]] : nodes[top].value);
+                if (nodes != null) {
+                    // drop the reference, so that the spliterator doesn't keep the nodes
+                    nodes[top] = null;
+                }
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public Spliterator.OfInt trySplit() {
+            // the single sub-tree is split into its root and the sub-trees of its children
+            if (top == 1 && !single[0]) {
+                expand();
+            }
+            if (top < 2) {
+                return null;
+            }
+
+            // the upper items come first, they are given away until
+            // they hold about a half of the values
+            int from = top - 1;
+            long prefix;
+            if (sized && positions != null) {
+                prefix = itemSize(from);
+                while (from > 1 && 2 * prefix < remaining) {
+                    prefix += itemSize(--from);
+                }
+            } else {
+                from = top / 2;
+                prefix = remaining / 2;
+                sized = false;
+            }
+
+            SubtreeSpliterator part = new SubtreeSpliterator(inOrder, top - from + 2);
+            part.top = top - from;
+            System.arraycopy(single, from, part.single, 0, part.top);
+            if (positions != null) {
+                System.arraycopy(positions, from, part.positions, 0, part.top);
+            } else {
+                System.arraycopy(nodes, from, part.nodes, 0, part.top);
+                Arrays.fill(nodes, from, top, null);
+            }
+            part.remaining = prefix;
+            part.sized = sized;
+            top = from;
+            remaining -= prefix;
+            return part;
+        }
+
+        @Override
+        public long estimateSize() {
+            return remaining;
+        }
+
+        @Override
+        public int characteristics() {
+            int characteristics = ORDERED | NONNULL;
+            if (sized) {
+                characteristics |= SIZED;
+            }
+            if (positions != null) {
+                characteristics |= SUBSIZED;
+            }
+            return characteristics;
+        }
+    }
+
+    /**
+     * Constructor to initialize the tree with an array
+     * @param values the values to initialize the tree with
+     */
+     public BinaryTree(int[] values){
+        // the values are already in level order, so they can be
+        // copied to the storage as they are
+        load(Arrays.copyOf(values, Math.max(values.length, DEFAULT_CAPACITY)), values.length);
+     }
+
+     /**
+      * Constructor to initialize the tree with the values
+      * @param fillWith the value to initialize the tree with
+      * @param size specify haw many nodes to initialize with the value (the size of the tree)
+      */
+     public BinaryTree(int fillWith, int size){
+        int[] values = new int[Math.max(size, DEFAULT_CAPACITY)];
+        Arrays.fill(values, 0, size, fillWith);
+        load(values, size);
+     }
+
+    /**
+     * A default constructor
+     */
+    public BinaryTree(){
+    }
+
+    /**
+     * The root node of the tree
+     */
+    protected Node root;
+
+    /**
+     * The size of the tree
+     */
+    protected int size = 0;
+
+    /**
+     * The initial capacity of the level-order storage
+     */
+    protected static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * The level-order storage of the tree while it is complete,
+     * the children of the i-th element are stored at 2i+1 and 2i+2
+     */
+    protected int[] elements = new int[DEFAULT_CAPACITY];
+
+    /**
+     * Specify if the tree is stored in the elements array (true)
+     * or linked through the root node (false)
+     */
+    protected boolean implicit = true;
+
+    /**
+     * The height of the tree while it is linked through the nodes
+     */
+    protected int height = 0;
+
+    /**
+     * The number of linked nodes, whose level-order position is not less than
+     * the size of the tree, the tree is complete when there are none
+     */
+    protected int misplaced = 0;
+
+    /**
+     * The number of linked nodes on each level, starting from the root level,
+     * they are kept while the tree is linked through the nodes, so the height can go down on removal
+     */
+    protected int[] levelCounts = new int[32];
+
+    /**
+     * Specify if the positions of the values are indexed
+     */
+    protected boolean indexed = false;
+
+    /**
+     * The index of the positions by value, it is present only when the tree is indexed
+     * and stored in the level-order array, the linked nodes are searched by traversal
+     */
+    protected ValueIndex valueIndex;
+
+    /**
+     * The queue shared by the level order traversals of the linked nodes
+     */
+    protected NodeQueue traversal;
+
+    /**
+     * The stack shared by the depth-first walks of the linked nodes
+     */
+    protected ShapeWalk shapeWalk;
+
+    /**
+     * The values removed lazily, or null if the values are removed at once
+     */
+    protected ValueCounts tombstones;
+
+    /**
+     * The stored values, counted while the values are removed lazily, so that the removal
+     * can check if the value is present without the search
+     */
+    protected ValueCounts storedCounts;
+
+    /**
+     * The number of the lazily removed values for each value left in the tree, after which the tree is compacted
+     */
+    protected double compactionRatio;
+
+    /**
+     * The number of nodes visited by the traversals, the scans and the sifts of the tree,
+     * it's read by the metrics
+     */
+    protected long visited;
+
+    /**
+     * Specify if the operation of the tree is being measured
+     */
+    protected boolean measuring;
+
+    /**
+     * The start time of the measured operation
+     */
+    protected long operationStart;
+
+    /**
+     * The number of visited nodes at the start of the measured operation
+     */
+    protected long visitedAtStart;
+
+    /**
+     * The JFR event of the measured operation
+     */
+    protected TreeOperationEvent operationEvent;
+
+    /**
+     * Used to start measuring the operation, only the outermost operation is measured,
+     * so the nested ones are included in it
+     * @return the metrics to be passed to endOperation or null if the operation is not measured
+     */
+    protected TreeMetrics beginOperation(){
+        TreeMetrics metrics = TreeMetrics.active;
+        if (metrics == null || measuring) {
+            return null;
+        }
+        measuring = true;
+        visitedAtStart = visited;
+        operationEvent = new TreeOperationEvent();
+        operationEvent.begin();
+        operationStart = System.nanoTime();
+        return metrics;
+    }
+
+    /**
+     * Used to record the measured operation
+     * @param metrics the metrics returned by beginOperation
+     * @param operation the operation
+     */
+    protected void endOperation(TreeMetrics metrics, TreeMetrics.Operation operation){
+        if (metrics == null) {
+            return;
+        }
+        long nanos = System.nanoTime() - operationStart;
+        long nodes = visited - visitedAtStart;
+        measuring = false;
+        metrics.record(operation, nanos, nodes);
+
+        TreeOperationEvent event = operationEvent;
+        operationEvent = null;
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = operation.name();
+            event.tree = getClass().getSimpleName();
+            event.size = size;
+            event.nodesVisited = nodes;
+            event.commit();
+        }
+    }
+
+    /**
+     * Get the empty queue for the level order traversal, the traversals share the same queue,
+     * the nested traversal gets its own queue, since the shared one is taken,
+     * the queue must be released when the traversal is finished
+     * @return the queue to be used
+     */
+    protected NodeQueue traversalQueue(){
+        // the widest level of the tree holds at most half of the nodes plus one
+        NodeQueue queue = traversal;
+        if (queue == null || queue.busy) {
+            queue = new NodeQueue(size / 2 + 1);
+            if (traversal == null) {
+                traversal = queue;
+            }
+        }
+        queue.busy = true;
+        return queue;
+    }
+
+    /**
+     * Used to replace the content of the tree with the level-order values
+     * @param values the array to be used as the storage
+     * @param count the number of values in the array that belong to the tree
+     */
+    protected void load(int[] values, int count){
+        elements = values;
+        size = count;
+        root = null;
+        implicit = true;
+        // the queue of the linked nodes isn't needed anymore, it's allocated anew for the size of the next tree
+        if (traversal != null && !traversal.busy) {
+            traversal = null;
+        }
+        countStored(values, count);
+        rebuildIndex();
+    }
+
+    /**
+     * Used to build the index of the positions anew from the level-order array
+     */
+    protected void rebuildIndex(){
+        valueIndex = null;
+        if (indexed && implicit) {
+            indexPositions();
+        }
+    }
+
+    /**
+     * Used to index the positions of the level-order array
+     */
+    protected void indexPositions(){
+        valueIndex = new ValueIndex(elements.length);
+        for (int i = 0; i < size; i++) {
+            valueIndex.add(elements[i], i);
+        }
+    }
+
+    /**
+     * Enable the index of the values, so that remove and contains take expected
+     * constant time, while the tree is complete, the removal moves the last value
+     * into the gap, so the tree stays complete and indexed
+     */
+    public void enableIndex(){
+        indexed = true;
+        rebuildIndex();
+    }
+
+    /**
+     * Disable the index of the values
+     */
+    public void disableIndex(){
+        indexed = false;
+        valueIndex = null;
+    }
+
+    /**
+     * Used to grow the level-order storage, so that it can hold the specified number of values
+     * @param capacity the required capacity
+     */
+    protected void ensureCapacity(int capacity){
+        if (capacity > elements.length) {
+            // grow by half of the current length to get amortized constant appends
+            int newCapacity = Math.max(capacity, elements.length + (elements.length >> 1));
+            elements = Arrays.copyOf(elements, newCapacity);
+            if (valueIndex != null) {
+                valueIndex.ensurePositions(newCapacity);
+            }
+        }
+    }
+
+    /**
+     * Used to move the tree from the level-order storage to the linked nodes,
+     * this is needed before any operation that makes the tree incomplete,
+     * the array is released, so the linked tree doesn't keep its values twice
+     */
+    protected void materialize(){
+        if (!implicit) {
+            return;
+        }
+        TreeMetrics.rebuilt(TreeMetrics.Rebuild.MATERIALIZE);
+
+        // the positions of the linked nodes are not indexed
+        valueIndex = null;
+        root = null;
+        if (size > 0) {
+            // create the nodes from the last one, so that the children
+            // already exist when the parent is linked
+            Node[] nodes = new Node[size];
+            for (int i = size - 1; i >= 0; i--) {
+                Node node = new Node(elements[i]);
+                long left = 2L * i + 1;
+                if (left < size) {
+                    node.left = nodes[(int) left];
+                }
+                if (left + 1 < size) {
+                    node.right = nodes[(int) left + 1];
+                }
+                nodes[i] = node;
+            }
+            root = nodes[0];
+        }
+        elements = new int[DEFAULT_CAPACITY];
+        implicit = false;
+        height = 32 - Integer.numberOfLeadingZeros(size);
+        misplaced = 0;
+
+        // all the levels are full except the last one
+        levelCounts = new int[Math.max(height, 32)];
+        for (int level = 0; level < height; level++) {
+            levelCounts[level] = (int) Math.min(1L << level, size - ((1L << level) - 1));
+        }
+    }
+
+    /**
+     * Used to update the height and the completeness after the node is linked,
+     * the size of the tree must be already incremented
+     * @param position the level-order position of the linked node
+     */
+    protected void nodeLinked(long position){
+        nodeLinked(position, 64 - Long.numberOfLeadingZeros(position + 1));
+    }
+
+    /**
+     * Used to update the height and the completeness after the node is linked,
+     * the size of the tree must be already incremented
+     * @param position the level-order position of the linked node, or any position not less
+     *                 than the size, if the node is misplaced
+     * @param depth the level of the linked node, starting from 1
+     */
+    protected void nodeLinked(long position, int depth){
+        countLevel(depth, 1);
+        height = Math.max(height, depth);
+
+        int previousSize = size - 1;
+        if (position > previousSize) {
+            misplaced ++;
+        }
+
+        // the node at the position equal to the previous size is not
+        // misplaced anymore, since the tree has grown
+        if (position != previousSize && getNode(previousSize) != null) {
+            misplaced --;
+        }
+    }
+
+    /**
+     * Used to update the height and the completeness after the leaf node is unlinked,
+     * the size of the tree must be already decremented
+     * @param position the level-order position of the unlinked node, or any position not less
+     *                 than the previous size, if the node was misplaced
+     * @param depth the level of the unlinked node, starting from 1
+     */
+    protected void nodeUnlinked(long position, int depth){
+        countLevel(depth, -1);
+        trimHeight();
+
+        if (position > size) {
+            misplaced --;
+        }
+
+        // the node at the position equal to the new size is misplaced now, since the tree has shrunk
+        if (getNode(size) != null) {
+            misplaced ++;
+        }
+    }
+
+    /**
+     * Used to change the number of nodes on the level
+     * @param depth the level, starting from 1
+     * @param change the number to be added
+     */
+    protected void countLevel(int depth, int change){
+        if (depth > levelCounts.length) {
+            levelCounts = Arrays.copyOf(levelCounts, Math.max(depth, 2 * levelCounts.length));
+        }
+        levelCounts[depth - 1] += change;
+    }
+
+    /**
+     * Used to lower the height, while the deepest level has no nodes left
+     */
+    protected void trimHeight(){
+        while (height > 0 && levelCounts[height - 1] == 0) {
+            height --;
+        }
+    }
+
+    /**
+     * Check if the position is in the sub-tree of another position
+     * @param position the position to be checked
+     * @param ancestor the position of the sub-tree root
+     * @return the boolean value indicating whether the position is in the sub-tree
+     */
+    protected static boolean descends(long position, long ancestor){
+        while (position > ancestor) {
+            position = (position - 1) / 2;
+        }
+        return position == ancestor;
+    }
+
+    /**
+     * Used to walk through the sub-tree with the stack shared by the depth-first walks,
+     * so the walks must not be nested
+     * @param node the root node of the sub-tree
+     * @param index the level-order position of the root node
+     * @return the walk holding the size, the height and the misplaced nodes of the sub-tree
+     */
+    protected ShapeWalk walk(Node node, long index){
+        return walk(node, index, 1, 0);
+    }
+
+    /**
+     * Used to walk through the sub-tree with the stack shared by the depth-first walks,
+     * so the walks must not be nested, the nodes are also added to the number of nodes on their levels
+     * @param node the root node of the sub-tree
+     * @param index the level-order position of the root node
+     * @param depth the level of the root node
+     * @param change the number added to the level of each node
+     * @return the walk holding the size, the height and the misplaced nodes of the sub-tree
+     */
+    protected ShapeWalk walk(Node node, long index, int depth, int change){
+        if (shapeWalk == null) {
+            shapeWalk = new ShapeWalk();
+        }
+        shapeWalk.walk(node, index, depth, change);
+        return shapeWalk;
+    }
+
+    /**
+     * Used to count the height and the completeness of the linked nodes anew,
+     * this is needed after the nodes are moved between the levels
+     */
+    protected void recomputeShape(){
+        Arrays.fill(levelCounts, 0);
+        ShapeWalk shape = walk(root, 0, 1, 1);
+        height = shape.levels;
+        misplaced = shape.misplaced;
+    }
+
+    /**
+     * Count the nodes of the sub-tree, whose level-order position is not less than the size
+     * @param node the root node of the sub-tree
+     * @param index the position of the root node
+     * @return the number of misplaced nodes
+     */
+    protected int countMisplaced(Node node, long index){
+        return walk(node, index).misplaced;
+    }
+
+    /**
+     * Find the position of the last node of the sub-tree in level order
+     * @param index the position of the sub-tree root
+     * @return the position of the deepest right-most node of the sub-tree
+     */
+    protected int lastOfSubtree(int index){
+        long first = index;
+        long last = index;
+
+        // go down level by level, the sub-tree occupies a contiguous
+        // range of positions on each level
+        while (2 * first + 1 < size) {
+            first = 2 * first + 1;
+            last = Math.min(2 * last + 2, size - 1);
+        }
+        return (int) last;
+    }
+
+    /**
+     * Find the first position of the value in level order
+     * @param value the value to search for
+     * @return the position of the value or -1 if not present
+     */
+    protected int indexOf(int value){
+        if (valueIndex != null) {
+            visited ++;
+            return valueIndex.first(value);
+        }
+        for (int i = 0; i < size; i++) {
+            if (elements[i] == value) {
+                visited += i + 1;
+                return i;
+            }
+        }
+        visited += size;
+        return -1;
+    }
+
+    /**
+     * Used to disconnect a specified node from the tree if present
+     * @param nodeToRemove the node to disconnect from the tree
+     */
+    protected void disconnectNode(Node nodeToRemove){
+        if (root == null) {
+            return;
+        }
+
+        // iterate through the tree using BFS
+        NodeQueue nodes = traversalQueue();
+        nodes.add(root);
+
+        while (!nodes.isEmpty()) {
+
+            Node node = nodes.remove();
+
+            // when the specified node if found, delete the
+            // reference of it
+            if (node.left != null) {
+                if (node.left == nodeToRemove){
+                    node.left = null;
+                    size -- ;
+                    nodes.release();
+                    return;
+                }
+                nodes.add(node.left);
+            }
+
+            if (node.right != null) {
+                if (node.right == nodeToRemove){
+                    node.right = null;
+                    size -- ;
+                    nodes.release();
+                    return;
+                }
+                nodes.add(node.right);
+            }
+        }
+        nodes.release();
+    }
+
+    /**
+     * Get the deepest right-most leaf node in the tree
+     * @param root the root node
+     * @return the found node
+     */
+    protected Node getDeepestRightLeafNode(Node root) {
+        if (root == null)
+            return null;
+
+        // create a queue for level order traversal
+        NodeQueue q = traversalQueue();
+        q.add(root);
+
+        // the resulting node
+        Node result = root;
+
+        // traverse until the queue is empty
+        while (!q.isEmpty()) {
+            int size = q.size();
+            for (int i = 0; i < size; i++) {
+                Node node = q.remove();
+
+                if (node.left != null) {
+                    q.add(node.left);
+                }
+
+                // since we go level by level, the last
+                // stored right leaf node is the deepest one
+                if (node.right != null) {
+                    q.add(node.right);
+                }
+                if (i == size - 1) {
+                    result = node;
+                }
+            }
+        }
+        q.release();
+        return result;
+    }
+
+    /**
+     * Inner class for the text written to the Appendable, the text is collected in the buffer,
+     * which is written out in large blocks, so the output doesn't go value by value
+     */
+    protected static class TextBuffer {
+
+        /**
+         * The number of chars written out at once
+         */
+        static final int BLOCK = 1 << 13;
+
+        /**
+         * The line separator of the text
+         */
+        static final String NEW_LINE = System.lineSeparator();
+
+        /**
+         * The destination of the text
+         */
+        final Appendable out;
+
+        /**
+         * The text which is not written out yet
+         */
+        final StringBuilder text = new StringBuilder(BLOCK + 256);
+
+        /**
+         * The constructor for TextBuffer class
+         * @param out the destination of the text
+         */
+        TextBuffer(Appendable out) {
+            this.out = out;
+        }
+
+        /**
+         * Used to write out the text if the buffer is full
+         * @throws IOException if the text can't be written
+         */
+        void check() throws IOException {
+            if (text.length() >= BLOCK) {
+                flush();
+            }
+        }
+
+        /**
+         * Used to end the line of the text
+         * @throws IOException if the text can't be written
+         */
+        void endLine() throws IOException {
+            text.append(NEW_LINE);
+            check();
+        }
+
+        /**
+         * Used to write out the rest of the text
+         * @throws IOException if the text can't be written
+         */
+        void flush() throws IOException {
+            out.append(text);
+            text.setLength(0);
+        }
+    }
+
+    /**
+     * Used to print the full binary tree
+     */
+    public void renderTree(){
+        try {
+            renderTree(System.out, Integer.MAX_VALUE, Long.MAX_VALUE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Write the tree to the Appendable, each node on its own line under its parent, the nodes are visited
+     * without recursion, so the deep trees are written as well, and all lines share the single prefix builder
+     * @param out the destination of the text, for example System.out or Writer
+     * @param maxDepth the number of levels to be written, the cut sub-trees are marked with "..."
+     * @param maxNodes the number of nodes to be written
+     * @throws IOException if the text can't be written
+     */
+    public void renderTree(Appendable out, int maxDepth, long maxNodes) throws IOException {
+        BinaryTree live = liveTree();
+        if (live != this) {
+            live.renderTree(out, maxDepth, maxNodes);
+            return;
+        }
+        TextBuffer text = new TextBuffer(out);
+        if (size == 0) {
+            text.text.append("The tree is empty");
+            text.endLine();
+            text.flush();
+            return;
+        }
+
+        // the prefix of the node on level d is made of the parts of its d ancestors
+        StringBuilder prefix = new StringBuilder();
+        long written = 0;
+        int top = 0;
+        if (implicit) {
+            // the pending positions, the next one on top, the level and the side
+            // of the node follow from its position
+            int[] positions = new int[treeHeight() + 1];
+            positions[top++] = 0;
+            while (top > 0 && written < maxNodes) {
+                int position = positions[--top];
+                int depth = 31 - Integer.numberOfLeadingZeros(position + 1);
+                long left = 2L * position + 1;
+                if (renderLine(text, prefix, depth, (position & 1) == 1, elements[position], left < size, maxDepth)) {
+                    if (left + 1 < size) {
+                        positions[top++] = (int) left + 1;
+                    }
+                    positions[top++] = (int) left;
+                }
+                written ++;
+            }
+        } else {
+            // the pending nodes, the next one on top, with their levels and sides
+            int capacity = treeHeight() + 1;
+            Node[] nodes = new Node[capacity];
+            int[] depths = new int[capacity];
+            boolean[] sides = new boolean[capacity];
+            nodes[top++] = root;
+            while (top > 0 && written < maxNodes) {
+                Node node = nodes[--top];
+                int depth = depths[top];
+                boolean hasChildren = node.left != null || node.right != null;
+                if (renderLine(text, prefix, depth, sides[top], node.value, hasChildren, maxDepth)) {
+                    if (node.right != null) {
+                        nodes[top] = node.right;
+                        depths[top] = depth + 1;
+                        sides[top++] = false;
+                    }
+                    if (node.left != null) {
+                        nodes[top] = node.left;
+                        depths[top] = depth + 1;
+                        sides[top++] = true;
+                    }
+                }
+                written ++;
+            }
+        }
+
+        if (top > 0) {
+            text.text.append("...");
+            text.endLine();
+        }
+        text.flush();
+    }
+
+    /**
+     * Used to write the line of the node, the nodes are written in pre-order,
+     * so the prefix builder always holds the parts of the node's ancestors
+     * @param text the text to write the line to
+     * @param prefix the prefix builder shared by all lines
+     * @param depth the level of the node, starting from 0
+     * @param isLeft specify if the node is the left child
+     * @param value the value of the node
+     * @param hasChildren specify if the node has any children
+     * @param maxDepth the number of levels to be written
+     * @return the boolean value indicating whether the children of the node should be written
+     * @throws IOException if the text can't be written
+     */
+    protected boolean renderLine(TextBuffer text, StringBuilder prefix, int depth, boolean isLeft,
+                                 int value, boolean hasChildren, int maxDepth) throws IOException {
+        prefix.setLength(6 * depth);
+        if (depth == 0) {
+            text.text.append("root:").append(value).append(" _");
+        } else {
+            text.text.append(prefix).append("  ╰–– ").append(isLeft ? "l:" : "r:").append(value);
+        }
+        text.endLine();
+        prefix.append(depth > 0 && isLeft ? "  |   " : "      ");
+
+        if (hasChildren && depth + 1 >= maxDepth) {
+            text.text.append(prefix).append("  ╰–– ...");
+            text.endLine();
+            return false;
+        }
+        return hasChildren;
+    }
+
+    /**
+     * Used to print items of the tree in level order
+     */
+    public void printLevelOrder() {
+        try {
+            printLevelOrder(System.out, Integer.MAX_VALUE, Long.MAX_VALUE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Write the items of the tree to the Appendable in level order, a line for each level
+     * @param out the destination of the text, for example System.out or Writer
+     * @param maxDepth the number of levels to be written
+     * @param maxNodes the number of nodes to be written, the rest is marked with "..."
+     * @throws IOException if the text can't be written
+     */
+    public void printLevelOrder(Appendable out, int maxDepth, long maxNodes) throws IOException {
+        BinaryTree live = liveTree();
+        if (live != this) {
+            live.printLevelOrder(out, maxDepth, maxNodes);
+            return;
+        }
+        TextBuffer text = new TextBuffer(out);
+        long written = 0;
+        int level = 1;
+        if (implicit) {
+            // each level starting at position first holds
+            // the positions from first to 2 * first
+            for (long first = 0; first < size && level <= maxDepth && written < maxNodes; first = 2 * first + 1) {
+                text.text.append("level: ").append(level);
+                text.endLine();
+                long last = Math.min(2 * first, size - 1);
+                for (long i = first; i <= last && written < maxNodes; i++, written++) {
+                    text.text.append(' ').append(elements[(int) i]);
+                    text.check();
+                }
+                if (written == maxNodes && written < size) {
+                    text.text.append(" ...");
+                }
+                text.endLine();
+                level ++;
+            }
+            text.flush();
+            return;
+        }
+
+        if (root == null) {
+            return;
+        }
+
+        // traverse the tree with breadth first search,
+        // utilizing the queue
+        NodeQueue nodes = traversalQueue();
+        nodes.add(root);
+
+        // while there are nodes in queue
+        while (!nodes.isEmpty() && level <= maxDepth && written < maxNodes) {
+            text.text.append("level: ").append(level);
+            text.endLine();
+
+            // get the number of nodes in the queue
+            int count = nodes.size();
+
+            // iterate through the nodes in queue
+            for (int i = 0; i < count; i++){
+
+                // take away the node
+                Node current = nodes.remove();
+
+                // if the node has children, add then to the queue
+                if (current.left != null) {
+                    nodes.add(current.left);
+                }
+
+                if (current.right != null) {
+                    nodes.add(current.right);
+                }
+
+                // write the node's value
+                if (written < maxNodes) {
+                    text.text.append(' ').append(current.value);
+                    text.check();
+                    written ++;
+                }
+            }
+            if (written == maxNodes && written < size) {
+                text.text.append(" ...");
+            }
+            text.endLine();
+
+            // increment the level counter
+            level ++;
+        }
+        nodes.release();
+        text.flush();
+    }
+
+    /**
+     * Used to properly create new nodes
+     * @param value the value of a new node
+     * @return the created node
+     */
+    protected Node createNode(int value){
+        Node node = new Node(value);
+
+        // increment the size of the tree
+        size ++;
+        valueStored(value);
+        return node;
+    }
+
+    /**
+     * Used to finding the max depth of the tree
+     * @param node the root node
+     * @return number - the max depth of the tree
+     */
+    protected int maxDepth(Node node) {
+        return walk(node, 0).levels - 1;
+    }
+
+    /**
+     * Public method for finding the tree height
+     * @return number - the height of the tree
+     */
+    public int treeHeight(){
+        if (implicit) {
+            // the complete tree of n nodes has floor(log2(n)) + 1 levels
+            return 32 - Integer.numberOfLeadingZeros(size);
+        }
+        return height;
+    }
+
+    /**
+     * Insert the node on a specified level to the specified inter-level position
+     * @param value the value of the node
+     * @param level the level in the tree, where node should be inserted
+     * @param interLevelIndex the index inside the level, where node should be inserted
+     */
+    public void insertNode(int value, int level, int interLevelIndex){
+        TreeMetrics metrics = beginOperation();
+        if (metrics == null) {
+            doInsertNode(value, level, interLevelIndex);
+            return;
+        }
+        try {
+            doInsertNode(value, level, interLevelIndex);
+        } finally {
+            endOperation(metrics, TreeMetrics.Operation.INSERT_NODE);
+        }
+    }
+
+    /**
+     * Used to insert the node at the position, the operation is measured by insertNode
+     * @param value the value of the node
+     * @param level the level in the tree, where node should be inserted
+     * @param interLevelIndex the index inside the level, where node should be inserted
+     */
+    protected void doInsertNode(int value, int level, int interLevelIndex){
+
+        // find the tree height
+        int treeHeight = treeHeight();
+
+        // the case when attempting to add the node to the root of the
+        // empty tree
+        if (treeHeight == 0 && level == 1 && interLevelIndex == 1){
+            pushNode(value);
+            return;
+        }
+
+        // if the specified level is less than 1 or
+        // is greater than the total number of level + 1, then
+        // the node can't be inserted
+        if (level > treeHeight+1 || level <= 0){
+            System.out.println("cannot insert, level is out of range");
+            return;
+        }
+
+        // if the inter-level position is less than 1 or
+        // greater than the max possible position on the specified
+        // level, the node can't be inserted
+        if (interLevelIndex > Math.pow(2, level-1) ||
+                interLevelIndex <=0){
+            System.out.println("can't insert, index is out of range");
+            return;
+        }
+
+        // if the specified level is 1 level bellow the last one,
+        // and the inner-level position is not 1, then the node can't
+        // be added because it would make the tree incomplete
+        if (level == treeHeight+1 && interLevelIndex > 1){
+            System.out.println("can't insert due to completeness constraint");
+            return;
+        }
+
+        // the position of the specified slot in level order
+        long position = (1L << (level - 1)) - 1 + (interLevelIndex - 1);
+
+        if (implicit) {
+            if (position < size) {
+                System.out.println(level == 1 ? "couldn't insert" : "cannot insert, specified position is taken");
+                return;
+            }
+
+            // the slot right after the last node keeps the tree complete
+            if (position == size) {
+                pushNode(value);
+                return;
+            }
+
+            // the first slot of a new level while the last level is not full
+            // makes the tree incomplete, so it has to be linked through the nodes
+            if (level != treeHeight + 1) {
+                System.out.println("cannot insert due to completeness constraint");
+                return;
+            }
+            materialize();
+        }
+
+        // the root is already present
+        if (level == 1) {
+            System.out.println("couldn't insert");
+            return;
+        }
+
+        // go straight down to the parent of the specified slot
+        Node parent = getNode((position - 1) / 2);
+        if (parent == null) {
+            System.out.println("cannot insert due to completeness constraint");
+            return;
+        }
+
+        // the odd positions are the left children
+        boolean isLeft = position % 2 == 1;
+        if ((isLeft ? parent.left : parent.right) != null) {
+            System.out.println("cannot insert, specified position is taken");
+            return;
+        }
+
+        // the previous slot on the level must be taken, otherwise
+        // the node would leave a gap on the level
+        if (interLevelIndex > 1 && getNode(position - 1) == null) {
+            System.out.println("cannot insert due to completeness constraint");
+            return;
+        }
+
+        if (isLeft) {
+            parent.left = createNode(value);
+        } else {
+            parent.right = createNode(value);
+        }
+        nodeLinked(position);
+    }
+
+    /**
+     * Find the node by its position in level order, following the bits of the position
+     * @param position the position of the node, starting from 0
+     * @return the found node or null if there is no node at the position
+     */
+    protected Node getNode(long position){
+        // the bits of the 1-based position after the leading one
+        // give the path from the root: 0 is left, 1 is right
+        long index = position + 1;
+        Node node = root;
+        int top = 62 - Long.numberOfLeadingZeros(index);
+        int bit = top;
+        for (; bit >= 0 && node != null; bit--) {
+            node = ((index >>> bit) & 1) == 0 ? node.left : node.right;
+        }
+        // each step goes one level down
+        visited += top - bit;
+        return node;
+    }
+
+    /**
+     * Add the node to the end of the tree, retaining the completeness
+     * @param value the value to be added
+     */
+    public void pushNode(int value) {
+        TreeMetrics metrics = beginOperation();
+        if (metrics == null) {
+            doPushNode(value);
+            return;
+        }
+        try {
+            doPushNode(value);
+        } finally {
+            endOperation(metrics, TreeMetrics.Operation.PUSH_NODE);
+        }
+    }
+
+    /**
+     * Used to add the node to the end of the tree, the operation is measured by pushNode
+     * @param value the value to be added
+     */
+    protected void doPushNode(int value){
+        // while the tree is complete the new value is just appended
+        // to the level-order storage
+        if (implicit) {
+            ensureCapacity(size + 1);
+            if (valueIndex != null) {
+                valueIndex.add(value, size);
+            }
+            valueStored(value);
+            elements[size++] = value;
+            return;
+        }
+
+        // if the tree is empty create a new node
+        if (root == null) {
+            root = createNode(value);
+            nodeLinked(0);
+            return;
+        }
+
+        // go straight down to the parent of the slot right after the last node, while no node is
+        // misplaced, the node of that position is the one the breadth first search would reach,
+        // otherwise the search below picks the same node as it always did
+        long parentPosition = (size - 1) / 2;
+        Node parent = misplaced == 0 ? getNode(parentPosition) : null;
+        if (parent != null) {
+            if (parent.left == null){
+                parent.left = createNode(value);
+                nodeLinked(2 * parentPosition + 1);
+                return;
+            } else if (parent.right == null){
+                parent.right = createNode(value);
+                nodeLinked(2 * parentPosition + 2);
+                return;
+            }
+        }
+
+        // otherwise the tree is incomplete, so find the place
+        // using breadth first search utilizing the queue, the positions
+        // are followed as they are after the node is added
+        NodeQueue nodes = traversalQueue();
+        long grownSize = size + 1;
+        // add the root node to the queue
+        nodes.add(root, 0, 1);
+
+        // the inter-tree index
+        int i = 1;
+
+        // the calculated position to add
+        int position = (int) (size + 1) / 2;
+
+        // while there are nodes in the queue
+        while (!nodes.isEmpty()) {
+
+            // take away the node from the queue
+            Node node = nodes.remove();
+            int depth = nodes.depth;
+
+            // the positions beyond the size are not computed further to avoid the overflow
+            long left = nodes.position < grownSize ? 2 * nodes.position + 1 : nodes.position;
+            long right = nodes.position < grownSize ? 2 * nodes.position + 2 : nodes.position;
+
+            // if the current node has the position of calculated,
+            // add the node
+            if (i == position){
+                nodes.release();
+                if (node.left == null){
+                    node.left = createNode(value);
+                    nodeLinked(left, depth + 1);
+                } else if (node.right == null){
+                    node.right = createNode(value);
+                    nodeLinked(right, depth + 1);
+                }
+                else System.out.println("the tree is incomplete, cannot create node");
+                return;
+            }
+
+            // add the child notes to queue
+            if (node.left != null) {
+                nodes.add(node.left, left, depth + 1);
+            }
+
+            if (node.right != null) {
+                nodes.add(node.right, right, depth + 1);
+            }
+
+            // increment the inter-tree index
+            i++;
+        }
+        nodes.release();
+    }
+
+    /**
+     * Remove the node by value
+     * @param value the value by which to search and delete the node
+     */
+    public void remove(int value) {
+        TreeMetrics metrics = beginOperation();
+        if (metrics == null) {
+            doRemove(value);
+            return;
+        }
+        try {
+            doRemove(value);
+        } finally {
+            endOperation(metrics, TreeMetrics.Operation.REMOVE);
+        }
+    }
+
+    /**
+     * Used to remove the node by value, the operation is measured by remove
+     * @param value the value by which to search and delete the node
+     */
+    protected void doRemove(int value){
+        if (removeLazily(value)) {
+            return;
+        }
+
+        if (implicit) {
+            if (size == 0) {
+                System.out.println("cannot remove, the tree is empty");
+                return;
+            }
+
+            int index = indexOf(value);
+            if (index < 0) {
+                System.out.println("cannot remove, the value is not present");
+                return;
+            }
+
+            // the indexed tree moves the last value into the gap, so the removal takes expected
+            // constant time and the tree stays complete and indexed, its level order differs from
+            // the tree without the index, where the node is replaced as below
+            if (valueIndex != null) {
+                removeAt(index);
+                return;
+            }
+
+            // the removed node is replaced by the deepest right-most node
+            // of its sub-tree (a leaf is replaced by itself), so the tree stays
+            // complete only if that node is the last one of the whole tree
+            int toReplace = lastOfSubtree(index);
+            if (toReplace == size - 1) {
+                elements[index] = elements[toReplace];
+                size --;
+                return;
+            }
+            materialize();
+        }
+
+        // in the complete tree the deepest right-most node is the last one,
+        // so it can be found by its position without the traversal
+        if (root != null && root.value == value && misplaced == 0 && size > 1) {
+            Node parent = getNode((size - 2) / 2);
+            Node toReplace;
+            if (parent.right != null) {
+                toReplace = parent.right;
+                parent.right = null;
+            } else {
+                toReplace = parent.left;
+                parent.left = null;
+            }
+            size --;
+            toReplace.left = root.left;
+            toReplace.right = root.right;
+            root = toReplace;
+            countLevel(height, -1);
+            height = 32 - Integer.numberOfLeadingZeros(size);
+            return;
+        }
+
+        removeNode(value);
+    }
+
+    /**
+     * Remove the linked node by value, the height and the completeness
+     * are updated for the nodes, which are moved
+     * @param value the value by which to search and delete the node
+     */
+    protected void removeNode(int value) {
+        if (root == null) {
+            System.out.println("cannot remove, the tree is empty");
+            return;
+        }
+
+        // if the root node need to be removed, find the right-most
+        // the deepest node, pop it and replace the root node with it
+        if (root.value == value){
+            // the last node is removed, so the empty tree goes
+            // back to the level-order storage
+            if (root.left == null && root.right == null) {
+                load(new int[DEFAULT_CAPACITY], 0);
+                return;
+            }
+            Node toReplace = unlinkDeepestRightLeaf(root, 0, 1);
+            toReplace.left = root.left;
+            toReplace.right = root.right;
+            root = toReplace;
+            return;
+        }
+
+        // traverse the tree using breadth first search
+        // utilizing the queue, following the positions of the nodes
+        NodeQueue nodes = traversalQueue();
+        // add the root node to the queue
+        nodes.add(root, 0, 1);
+
+        // while there are nodes in the queue
+        while (!nodes.isEmpty()) {
+
+            // take away the node from the queue
+            Node node = nodes.remove();
+            int depth = nodes.depth;
+
+            // the positions beyond the size are not computed further to avoid the overflow
+            long left = nodes.position < size ? 2 * nodes.position + 1 : nodes.position;
+            long right = nodes.position < size ? 2 * nodes.position + 2 : nodes.position;
+
+            // if the child node is the one to be removed, unlink it
+            if (node.left != null && node.left.value == value) {
+                nodes.release();
+                unlinkChild(node, true, left, depth + 1);
+                return;
+            }
+            if (node.right != null && node.right.value == value) {
+                nodes.release();
+                unlinkChild(node, false, right, depth + 1);
+                return;
+            }
+
+            // add the child notes to queue
+            if (node.left != null) {
+                nodes.add(node.left, left, depth + 1);
+            }
+
+            if (node.right != null) {
+                nodes.add(node.right, right, depth + 1);
+            }
+        }
+        nodes.release();
+        System.out.println("cannot remove, the value is not present");
+    }
+
+    /**
+     * Used to remove the child node, considering 3 cases
+     * @param parent the parent of the node to be removed
+     * @param isLeft specify if the node is the left child
+     * @param position the level-order position of the node
+     * @param depth the level of the node
+     */
+    protected void unlinkChild(Node parent, boolean isLeft, long position, int depth){
+        Node node = isLeft ? parent.left : parent.right;
+
+        // 1: it has no children, then remove the reference of it from
+        // the parent node
+        if (node.left == null && node.right == null) {
+            if (isLeft) {
+                parent.left = null;
+            } else {
+                parent.right = null;
+            }
+            size --;
+            nodeUnlinked(position, depth);
+            return;
+        }
+
+        // 3: it has 2 children, then find the deepest right-most node,
+        // pop it and replace the node to be deleted with it
+        if (node.left != null && node.right != null) {
+            Node toReplace = unlinkDeepestRightLeaf(node, position, depth);
+            toReplace.left = node.left;
+            toReplace.right = node.right;
+            if (isLeft) {
+                parent.left = toReplace;
+            } else {
+                parent.right = toReplace;
+            }
+            return;
+        }
+
+        // 2: it has 1 children,  then replace the node with the child
+        // node, the sub-tree of the child goes one level up, so its nodes
+        // are counted off the old places and on the new ones
+        Node child = node.left != null ? node.left : node.right;
+        long childPosition = position < size ? 2 * position + (node.left != null ? 1 : 2) : position;
+        int misplacedBefore = walk(child, childPosition, depth + 1, -1).misplaced;
+        if (isLeft) {
+            parent.left = child;
+        } else {
+            parent.right = child;
+        }
+        countLevel(depth, -1);
+        if (position >= size) {
+            misplaced --;
+        }
+        size --;
+        misplaced += walk(child, position, depth, 1).misplaced - misplacedBefore;
+
+        // the node at the position equal to the new size is misplaced now,
+        // unless it's in the moved sub-tree, which is counted already
+        if (!descends(size, position) && getNode(size) != null) {
+            misplaced ++;
+        }
+        trimHeight();
+    }
+
+    /**
+     * Used to unlink the deepest right-most node of the sub-tree, which is the last one in level order
+     * @param start the root node of the sub-tree, it must have children
+     * @param position the level-order position of the root node
+     * @param depth the level of the root node
+     * @return the unlinked node
+     */
+    protected Node unlinkDeepestRightLeaf(Node start, long position, int depth){
+        NodeQueue nodes = traversalQueue();
+        nodes.add(start, position, depth);
+
+        // the last node added to the queue is the last one in level order
+        Node last = start;
+        Node parent = null;
+        long lastPosition = position;
+        int lastDepth = depth;
+
+        while (!nodes.isEmpty()) {
+            Node node = nodes.remove();
+            int level = nodes.depth + 1;
+            long left = nodes.position < size ? 2 * nodes.position + 1 : nodes.position;
+            long right = nodes.position < size ? 2 * nodes.position + 2 : nodes.position;
+
+            if (node.left != null) {
+                nodes.add(node.left, left, level);
+                last = node.left;
+                parent = node;
+                lastPosition = left;
+                lastDepth = level;
+            }
+            if (node.right != null) {
+                nodes.add(node.right, right, level);
+                last = node.right;
+                parent = node;
+                lastPosition = right;
+                lastDepth = level;
+            }
+        }
+        nodes.release();
+
+        if (parent.right == last) {
+            parent.right = null;
+        } else {
+            parent.left = null;
+        }
+        size --;
+        nodeUnlinked(lastPosition, lastDepth);
+        return last;
+    }
+
+    /**
+     * Add all the values to the end of the tree, retaining the completeness
+     * @param values the values to be added
+     */
+    public void pushAll(int[] values){
+        if (!implicit) {
+            for (int value: values){
+                pushNode(value);
+            }
+            return;
+        }
+
+        // the values are copied to the storage at once
+        ensureCapacity(size + values.length);
+        System.arraycopy(values, 0, elements, size, values.length);
+        if (valueIndex != null) {
+            for (int i = 0; i < values.length; i++) {
+                valueIndex.add(values[i], size + i);
+            }
+        }
+        if (storedCounts != null) {
+            for (int value: values) {
+                storedCounts.add(value);
+            }
+        }
+        size += values.length;
+    }
+
+    /**
+     * Add all the values of the stream to the tree
+     * @param values the values to be added
+     */
+    public void pushAll(IntStream values){
+        batch(mutator -> values.forEachOrdered(mutator::push));
+    }
+
+    /**
+     * Remove one occurrence of each value from the tree, the absent values are skipped,
+     * the tree is made complete once after all the values are removed
+     * @param values the values to be removed
+     */
+    public void removeAll(int[] values){
+        Batch batch = new Batch();
+        for (int value: values){
+            batch.remove(value);
+        }
+        applyBatch(batch);
+    }
+
+    /**
+     * Make a number of changes at once, the changes are collected by the mutator
+     * and then applied to the tree in one pass, so the completeness is restored
+     * only once, the complete tree is left in the same level order as the changes
+     * made one by one to the indexed tree would leave it, the removed value is replaced
+     * by the last one, the linked tree is rebuilt in an unspecified order
+     * @param changes the code, which makes the changes through the mutator
+     */
+    public void batch(Consumer<Mutator> changes){
+        Batch batch = new Batch();
+        changes.accept(batch);
+        applyBatch(batch);
+    }
+
+    /**
+     * Used to apply the collected changes, a removal takes away the value only if it's
+     * present in the tree or added before the removal, as if the changes were made one by one
+     * @param batch the changes to be applied
+     */
+    protected void applyBatch(Batch batch){
+        // the distinct removed values, sorted for the binary search
+        int k = 0;
+        int[] keys = new int[batch.count];
+        for (int i = 0; i < batch.count; i++) {
+            if (batch.removals[i]) {
+                keys[k++] = batch.values[i];
+            }
+        }
+
+        // without removals the values are just added to the complete tree,
+        // the linked one is rebuilt, since it may have no place for them
+        if (k == 0 && implicit) {
+            pushAll(Arrays.copyOf(batch.values, batch.count));
+            return;
+        }
+
+        // the batch is applied change by change, so the tree is left as the changes made one by one
+        // to the indexed tree would leave it, the many removals find their values through the index
+        // built for the batch only
+        if (replayIsCheaper(batch.count, k)) {
+            boolean temporary = valueIndex == null && k > 2;
+            if (temporary) {
+                indexPositions();
+            }
+            for (int i = 0; i < batch.count; i++) {
+                if (!batch.removals[i]) {
+                    pushNode(batch.values[i]);
+                    continue;
+                }
+                // the value removed lazily is stored, but it's not present
+                if (tombstones != null && !contains(batch.values[i])) {
+                    continue;
+                }
+                int index = indexOf(batch.values[i]);
+                if (index >= 0) {
+                    removeAt(index);
+                }
+            }
+            if (temporary) {
+                valueIndex = null;
+            }
+            return;
+        }
+
+        Arrays.sort(keys, 0, k);
+        int distinct = 0;
+        for (int i = 0; i < k; i++) {
+            if (distinct == 0 || keys[distinct - 1] != keys[i]) {
+                keys[distinct++] = keys[i];
+            }
+        }
+
+        // count the occurrences of the removed values in the tree, the lazily removed values
+        // are skipped, and they are forgotten once the storage is replaced
+        int[] current = getValuesOfTheTree();
+        int[] available = new int[distinct];
+        for (int value: current) {
+            int key = Arrays.binarySearch(keys, 0, distinct, value);
+            if (key >= 0) {
+                available[key] ++;
+            }
+        }
+
+        // replay the changes to find out how many of each value are actually removed
+        int[] removed = new int[distinct];
+        for (int i = 0; i < batch.count; i++) {
+            int key = Arrays.binarySearch(keys, 0, distinct, batch.values[i]);
+            if (!batch.removals[i]) {
+                if (key >= 0) {
+                    available[key] ++;
+                }
+            } else if (available[key] > 0) {
+                available[key] --;
+                removed[key] ++;
+            }
+        }
+
+        // the removals cancel the added values first
+        int[] added = new int[batch.count];
+        int addedCount = 0;
+        for (int i = 0; i < batch.count; i++) {
+            if (batch.removals[i]) {
+                continue;
+            }
+            int key = Arrays.binarySearch(keys, 0, distinct, batch.values[i]);
+            if (key >= 0 && removed[key] > 0) {
+                removed[key] --;
+                continue;
+            }
+            added[addedCount++] = batch.values[i];
+        }
+
+        // then the values of the tree are taken away in level order
+        int count = 0;
+        for (int value: current) {
+            int key = Arrays.binarySearch(keys, 0, distinct, value);
+            if (key >= 0 && removed[key] > 0) {
+                removed[key] --;
+                continue;
+            }
+            current[count++] = value;
+        }
+
+        // the rest of the tree values and the added values make the new storage
+        int[] merged = Arrays.copyOf(current, Math.max(count + addedCount, DEFAULT_CAPACITY));
+        System.arraycopy(added, 0, merged, count, addedCount);
+        replaceValues(merged, count + addedCount);
+    }
+
+    /**
+     * Used to remove the value at the position of the level-order array, the last value
+     * takes its place, so the tree stays complete
+     * @param index the position of the removed value
+     */
+    protected void removeAt(int index){
+        valueTaken(elements[index]);
+        int last = elements[--size];
+        if (valueIndex != null) {
+            valueIndex.delete(elements[index], index);
+            if (index < size) {
+                valueIndex.move(last, size, index);
+            }
+        }
+        elements[index] = last;
+    }
+
+    /**
+     * Check if applying the changes of the batch one by one is cheaper than rebuilding the storage,
+     * the many removals are found through the index, which takes a pass over the tree to build,
+     * the lazily removed values are rather dropped by the rebuild unless the tree is indexed already
+     * @param count the number of the changes
+     * @param removals the number of the removals among them
+     * @return the boolean value indicating whether the changes should be applied one by one
+     */
+    protected boolean replayIsCheaper(int count, int removals){
+        return implicit && (valueIndex != null || removals <= 2 || tombstones == null || tombstones.total == 0);
+    }
+
+    /**
+     * Used to replace the content of the tree with the values after the batch
+     * @param values the array to be used as the storage
+     * @param count the number of values in the array that belong to the tree
+     */
+    protected void replaceValues(int[] values, int count){
+        load(values, count);
+    }
+
+    /**
+     * Start removing the values lazily: the removed value is only marked as removed and left
+     * in its place, and the tree is rebuilt without the marked values once their number reaches the ratio
+     * of the values left, so the cost of the rebuild is spread among many removals, the traversals skip
+     * the marked values, and the stored values are counted, so the removal doesn't search for the value
+     * @param ratio the number of the removed values for each value left in the tree, after which the tree is compacted
+     */
+    public void enableLazyRemoval(double ratio){
+        if (!(ratio > 0 && ratio <= 1)) {
+            throw new IllegalArgumentException("the ratio must be greater than 0 and not greater than 1");
+        }
+        compactionRatio = ratio;
+        if (tombstones == null) {
+            tombstones = new ValueCounts();
+            storedCounts = new ValueCounts();
+            countStored(storedValues(), size);
+        }
+    }
+
+    /**
+     * Stop removing the values lazily, the values marked as removed are taken away
+     */
+    public void disableLazyRemoval(){
+        compact();
+        tombstones = null;
+        storedCounts = null;
+    }
+
+    /**
+     * Used to count the stored values anew, while the values are removed lazily,
+     * the values marked as removed are forgotten
+     * @param values the stored values
+     * @param count the number of the stored values
+     */
+    protected void countStored(int[] values, int count){
+        if (tombstones == null) {
+            return;
+        }
+        tombstones.clear();
+        storedCounts.clear();
+        for (int i = 0; i < count; i++) {
+            storedCounts.add(values[i]);
+        }
+    }
+
+    /**
+     * Used to count the value added to the tree, while the values are removed lazily
+     * @param value the added value
+     */
+    protected void valueStored(int value){
+        if (storedCounts != null) {
+            storedCounts.add(value);
+        }
+    }
+
+    /**
+     * Used to count the value taken away from the tree, while the values are removed lazily
+     * @param value the value taken away
+     */
+    protected void valueTaken(int value){
+        if (storedCounts != null) {
+            storedCounts.take(value);
+        }
+    }
+
+    /**
+     * Used to get the number of the occurrences of the value, which are not removed lazily
+     * @param value the value
+     * @return the number of occurrences
+     */
+    protected int liveCount(int value){
+        return storedCounts.count(value) - tombstones.count(value);
+    }
+
+    /**
+     * Rebuild the tree without the values marked as removed, the rest of the values
+     * keep their level order and the tree becomes complete
+     */
+    public void compact(){
+        if (tombstones == null || tombstones.total == 0) {
+            return;
+        }
+        TreeMetrics.rebuilt(TreeMetrics.Rebuild.COMPACT);
+
+        int[] values = getValuesOfTheTree();
+        replaceValues(Arrays.copyOf(values, Math.max(values.length, DEFAULT_CAPACITY)), values.length);
+    }
+
+    /**
+     * Used to compact the tree before the operations, which replace all the stored values
+     */
+    protected void purge(){
+        if (tombstones != null && tombstones.total > 0) {
+            compact();
+        }
+    }
+
+    /**
+     * Used to mark the value as removed if the values are removed lazily
+     * @param value the value to be removed
+     * @return the boolean value indicating whether the removal is handled
+     */
+    protected boolean removeLazily(int value){
+        if (tombstones == null) {
+            return false;
+        }
+        if (size() == 0) {
+            System.out.println("cannot remove, the tree is empty");
+            return true;
+        }
+        if (liveCount(value) == 0) {
+            System.out.println("cannot remove, the value is not present");
+            return true;
+        }
+        tombstones.add(value);
+        if (tombstones.total >= compactionRatio * (size - tombstones.total)) {
+            compact();
+        }
+        return true;
+    }
+
+    /**
+     * Check if the tree contains the value
+     * @param value the value to search for
+     * @return the boolean value indicating whether the value is present
+     */
+    public boolean contains(int value){
+        // the value is present if it's stored more times than it's removed lazily
+        if (tombstones != null) {
+            return liveCount(value) > 0;
+        }
+
+        if (implicit) {
+            if (valueIndex != null) {
+                visited ++;
+                return valueIndex.find(value) >= 0;
+            }
+            return indexOf(value) >= 0;
+        }
+
+        if (root == null) {
+            return false;
+        }
+
+        // traverse the tree using breadth first search
+        NodeQueue nodes = traversalQueue();
+        nodes.add(root);
+        while (!nodes.isEmpty()) {
+            Node node = nodes.remove();
+            if (node.value == value) {
+                nodes.release();
+                return true;
+            }
+            if (node.left != null) {
+                nodes.add(node.left);
+            }
+            if (node.right != null) {
+                nodes.add(node.right);
+            }
+        }
+        nodes.release();
+        return false;
+    }
+
+    /**
+     * Public method for checking completeness
+     * @return the boolean value indicating whether the tree is complete
+     */
+    public boolean isCompleteTree(){
+        return implicit || misplaced == 0;
+    }
+
+    /**
+     * Get the size of the tree or any sub-tree
+     * @param node the root node
+     * @return the number of nodes in the tree
+     */
+    protected int getSize(Node node) {
+        return walk(node, 0).count;
+    }
+
+    /**
+     * Public method for getting size of the full tree
+     * @return the number of nodes in the tree
+     */
+    public int size(){
+        return tombstones == null ? size : size - tombstones.total;
+    }
+
+    /**
+     * Get the spliterator of the values of the tree, the values are read lazily, so
+     * the tree must not be changed until the spliterator is used up, the level order is split by
+     * index ranges in array mode, the other orders are split by sub-trees
+     * @param order the order of the values
+     * @return the spliterator of the values
+     */
+    public Spliterator.OfInt spliterator(Traversal order){
+        boolean removed = tombstones != null && tombstones.total > 0;
+
+        // the orders, which follow the shape, go through the tree the compaction would leave,
+        // like the rendering does, the level order only skips the removed values
+        if (removed && order != Traversal.LEVEL_ORDER) {
+            return liveTree().spliterator(order);
+        }
+
+        Spliterator.OfInt values;
+        if (order != Traversal.LEVEL_ORDER) {
+            values = new SubtreeSpliterator(order == Traversal.IN_ORDER);
+        } else if (implicit) {
+            values = Arrays.spliterator(elements, 0, size);
+        } else {
+            values = Spliterators.spliterator(linkedLevelOrder(), size, Spliterator.ORDERED | Spliterator.NONNULL);
+        }
+        if (!removed) {
+            return values;
+        }
+        return new LiveSpliterator(values, tombstones.copy(), size());
+    }
+
+    /**
+     * Inner class for the level-order spliterator, which skips the lazily removed values, the first occurrences met
+     * are skipped, since the values are indistinguishable, the copy of the removed values is used up on the way
+     */
+    protected static class LiveSpliterator extends Spliterators.AbstractIntSpliterator implements IntConsumer {
+
+        /**
+         * The stored values
+         */
+        final Spliterator.OfInt values;
+
+        /**
+         * The removed values, which are not skipped yet
+         */
+        final ValueCounts removed;
+
+        /**
+         * The value just read from the stored values
+         */
+        int value;
+
+        /**
+         * The constructor for LiveSpliterator class
+         * @param values the stored values
+         * @param removed the copy of the lazily removed values
+         * @param size the number of the values left
+         */
+        LiveSpliterator(Spliterator.OfInt values, ValueCounts removed, long size) {
+            super(size, Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.SIZED);
+            this.values = values;
+            this.removed = removed;
+        }
+
+        @Override
+        public void accept(int value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean tryAdvance(IntConsumer action) {
+            while (values.tryAdvance((IntConsumer) this)) {
+                if (!removed.take(value)) {
+                    action.accept(value);
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Get the stream of the values of the tree in the specified order
+     * @param order the order of the values
+     * @return the stream of the values
+     */
+    public IntStream stream(Traversal order){
+        return StreamSupport.intStream(spliterator(order), false);
+    }
+
+    /**
+     * Get the stream of the values of the tree in level order
+     * @return the stream of the values
+     */
+    public IntStream stream(){
+        return stream(Traversal.LEVEL_ORDER);
+    }
+
+    /**
+     * Get the iterator through the values of the tree level by level
+     * @return the iterator of the values
+     */
+    public PrimitiveIterator.OfInt levelOrder(){
+        if (implicit || (tombstones != null && tombstones.total > 0)) {
+            return Spliterators.iterator(spliterator(Traversal.LEVEL_ORDER));
+        }
+        return linkedLevelOrder();
+    }
+
+    /**
+     * Used to get the iterator through the linked nodes level by level, including the lazily removed values
+     * @return the iterator of the values
+     */
+    protected PrimitiveIterator.OfInt linkedLevelOrder(){
+
+        // the iterator has its own queue, since it's used lazily
+        NodeQueue nodes = new NodeQueue(Math.min(size / 2 + 1, DEFAULT_CAPACITY));
+        if (root != null) {
+            nodes.add(root);
+        }
+        return new PrimitiveIterator.OfInt() {
+            @Override
+            public boolean hasNext() {
+                return !nodes.isEmpty();
+            }
+
+            @Override
+            public int nextInt() {
+                if (nodes.isEmpty()) {
+                    throw new NoSuchElementException("no values left");
+                }
+                Node node = nodes.remove();
+                if (node.left != null) {
+                    nodes.add(node.left);
+                }
+                if (node.right != null) {
+                    nodes.add(node.right);
+                }
+                return node.value;
+            }
+        };
+    }
+
+    /**
+     * Get the iterator through the values of the tree in order (the left sub-tree, the node, the right sub-tree)
+     * @return the iterator of the values
+     */
+    public PrimitiveIterator.OfInt inOrder(){
+        return Spliterators.iterator(spliterator(Traversal.IN_ORDER));
+    }
+
+    /**
+     * Get the iterator through the values of the tree in pre-order (the node, the left sub-tree, the right sub-tree)
+     * @return the iterator of the values
+     */
+    public PrimitiveIterator.OfInt preOrder(){
+        return Spliterators.iterator(spliterator(Traversal.PRE_ORDER));
+    }
+
+    /**
+     * Get the node values of the tree, the lazily removed values are skipped
+     * @return the int array of all values
+     */
+    protected int[] getValuesOfTheTree(){
+        int[] values = storedValues();
+        if (tombstones == null || tombstones.total == 0) {
+            return values;
+        }
+
+        // the values are indistinguishable, so the first occurrences in level order are skipped
+        ValueCounts removed = tombstones.copy();
+        int count = 0;
+        for (int value: values) {
+            if (!removed.take(value)) {
+                values[count++] = value;
+            }
+        }
+        return Arrays.copyOf(values, count);
+    }
+
+    /**
+     * Used to get the tree of the values, which are not removed lazily, it is the tree
+     * the compaction would leave, so the traversals, which follow the shape, go through it
+     * instead of compacting this tree
+     * @return this tree if no values are removed lazily, otherwise the complete tree of the values left
+     */
+    protected BinaryTree liveTree(){
+        if (tombstones == null || tombstones.total == 0) {
+            return this;
+        }
+        return new BinaryTree(getValuesOfTheTree());
+    }
+
+    /**
+     * Used to get the stored values in level order, including the lazily removed ones
+     * @return the int array of the stored values
+     */
+    protected int[] storedValues(){
+        if (implicit) {
+            return Arrays.copyOf(elements, size);
+        }
+
+        if (root == null) {
+            return new int[]{};
+        }
+        return collectValues(new int[this.size]);
+    }
+
+    /**
+     * Used to write the values of the linked nodes to the array in level order
+     * @param values the array, which length is at least the size of the tree
+     * @return the array
+     */
+    protected int[] collectValues(int[] values){
+        if (root == null) {
+            return values;
+        }
+
+        // traverse through the tree
+        NodeQueue nodes = traversalQueue();
+        nodes.add(root);
+
+        // collect the values of the tree level by level
+        int i = 0;
+        while (!nodes.isEmpty()) {
+
+            Node node = nodes.remove();
+            values[i] =  (node.value);
+
+            if (node.left != null) {
+                nodes.add(node.left);
+            }
+
+            if (node.right != null) {
+                nodes.add(node.right);
+            }
+            i++;
+        }
+        nodes.release();
+        return values;
+    }
+
+    /**
+     * Restores the state of being a complete tree
+     */
+    protected void restoreCompleteness(){
+        purge();
+
+        if (implicit) {
+            return;
+        }
+        TreeMetrics.rebuilt(TreeMetrics.Rebuild.RESTORE_COMPLETENESS);
+        pack();
+    }
+
+    /**
+     * Used to replace the linked nodes with the level-order storage, where each value takes
+     * the next free position, in a single traversal, the storage is allocated for the size of the tree,
+     * since the array is released when the tree is materialized, only the small trees reuse it
+     */
+    protected void pack(){
+        int[] storage = elements.length >= size ? elements : new int[Math.max(size, DEFAULT_CAPACITY)];
+        load(collectValues(storage), size);
+    }
+
+    /**
+     * Public method to restore the tree if it's incomplete
+     */
+    public void restore(){
+        TreeMetrics metrics = beginOperation();
+        if (metrics == null) {
+            doRestore();
+            return;
+        }
+        try {
+            doRestore();
+        } finally {
+            endOperation(metrics, TreeMetrics.Operation.RESTORE);
+        }
+    }
+
+    /**
+     * Used to restore the tree if it's incomplete, the operation is measured by restore
+     */
+    protected void doRestore(){
+        purge();
+        if (!this.isCompleteTree()){
+            this.restoreCompleteness();
+        }
+    }
+
+    /**
+     * The first bytes of the snapshot file
+     */
+    protected static final int SNAPSHOT_MAGIC = 0x4C364254;
+
+    /**
+     * The version of the snapshot format
+     */
+    protected static final int SNAPSHOT_VERSION = 1;
+
+    /**
+     * The number of bytes before the values of the snapshot
+     */
+    protected static final int SNAPSHOT_HEADER = 24;
+
+    /**
+     * The flag of the snapshot, which values are in the heap order
+     */
+    protected static final int HEAP_ORDERED = 1;
+
+    /**
+     * The flag of the snapshot, which tree is complete, so its shape is not written
+     */
+    protected static final int COMPLETE = 2;
+
+    /**
+     * The number of bytes read or written at once
+     */
+    protected static final int SNAPSHOT_BLOCK = 1 << 20;
+
+    /**
+     * The largest number of bytes of the snapshot mapped at once
+     */
+    protected static final int SNAPSHOT_MAPPING = 1 << 30;
+
+    /**
+     * Check if the values of the tree are in the heap order
+     * @return the boolean value indicating whether the tree is a heap
+     */
+    protected boolean heapOrdered(){
+        return false;
+    }
+
+    /**
+     * Write the tree to the file, the snapshot keeps the header (the size, the height and the flags,
+     * the height is checked on reading),
+     * the values in level order and, if the tree is incomplete, the shape as two bits for each node
+     * in level order, which specify if the node has the left and the right child
+     * @param file the file to be written
+     * @throws IOException if the file can't be written
+     */
+    public void writeSnapshot(Path file) throws IOException {
+        BinaryTree live = liveTree();
+        if (live != this) {
+            live.writeSnapshot(file);
+            return;
+        }
+        int[] values = implicit ? elements : getValuesOfTheTree();
+        long[] shape = implicit ? null : getShapeOfTheTree();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(SNAPSHOT_BLOCK).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(SNAPSHOT_MAGIC);
+            buffer.putInt(SNAPSHOT_VERSION);
+            buffer.putInt((heapOrdered() ? HEAP_ORDERED : 0) | (implicit ? COMPLETE : 0));
+            buffer.putInt(size);
+            buffer.putInt(treeHeight());
+            buffer.putInt(0);
+
+            // the values are copied to the buffer block by block
+            for (int written = 0; written < size; ) {
+                int count = Math.min(size - written, buffer.remaining() / 4);
+                buffer.asIntBuffer().put(values, written, count);
+                buffer.position(buffer.position() + count * 4);
+                written += count;
+                if (!buffer.hasRemaining() || written == size) {
+                    writeBlock(channel, buffer);
+                }
+            }
+
+            if (shape != null) {
+                for (long bits: shape) {
+                    if (buffer.remaining() < 8) {
+                        writeBlock(channel, buffer);
+                    }
+                    buffer.putLong(bits);
+                }
+            }
+            writeBlock(channel, buffer);
+        }
+    }
+
+    /**
+     * Used to write the content of the buffer to the channel and clear the buffer
+     * @param channel the channel to write to
+     * @param buffer the buffer to be written
+     * @throws IOException if the channel can't be written
+     */
+    protected static void writeBlock(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Get the shape of the linked nodes, two bits for each node in level order,
+     * the lower one is set if the node has the left child, the upper one if it has the right child
+     * @return the bits of the shape
+     */
+    protected long[] getShapeOfTheTree(){
+        long[] shape = new long[(int) ((2L * size + 63) >>> 6)];
+        if (root == null) {
+            return shape;
+        }
+
+        NodeQueue nodes = traversalQueue();
+        nodes.add(root);
+        long bit = 0;
+        while (!nodes.isEmpty()) {
+            Node node = nodes.remove();
+            if (node.left != null) {
+                shape[(int) (bit >>> 6)] |= 1L << bit;
+                nodes.add(node.left);
+            }
+            if (node.right != null) {
+                shape[(int) ((bit + 1) >>> 6)] |= 1L << (bit + 1);
+                nodes.add(node.right);
+            }
+            bit += 2;
+        }
+        nodes.release();
+        return shape;
+    }
+
+    /**
+     * Replace the content of the tree with the snapshot written by writeSnapshot,
+     * the values are read with the single pass over the mapped file
+     * @param file the file to be read
+     * @throws IOException if the file can't be read or it's not the snapshot
+     */
+    public void readSnapshot(Path file) throws IOException {
+        readSnapshotData(file);
+    }
+
+    /**
+     * Used to replace the content of the tree with the snapshot
+     * @param file the file to be read
+     * @return the boolean value indicating whether the values are in the heap order
+     * @throws IOException if the file can't be read or it's not the snapshot
+     */
+    protected boolean readSnapshotData(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(SNAPSHOT_HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // read the whole header
+            }
+            header.flip();
+            if (header.remaining() < SNAPSHOT_HEADER || header.getInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("the file is not a tree snapshot");
+            }
+            if (header.getInt() != SNAPSHOT_VERSION) {
+                throw new IOException("unsupported version of the tree snapshot");
+            }
+            int flags = header.getInt();
+            int count = header.getInt();
+            int height = header.getInt();
+            boolean complete = (flags & COMPLETE) != 0;
+
+            long shapeLength = complete ? 0 : ((2L * count + 63) >>> 6) * 8;
+            if (count < 0 || channel.size() < SNAPSHOT_HEADER + 4L * count + shapeLength) {
+                throw new IOException("the tree snapshot is truncated");
+            }
+
+            // the height of the complete tree follows from its size,
+            // the height of the other ones is checked against the shape
+            if (complete && height != 32 - Integer.numberOfLeadingZeros(count)) {
+                throw new IOException("the height of the tree snapshot is broken");
+            }
+
+            // the values are copied from the mapped file in bulk, the file is mapped
+            // region by region, since the single mapping can't exceed 2 GB
+            int[] values = new int[Math.max(count, DEFAULT_CAPACITY)];
+            long offset = SNAPSHOT_HEADER;
+            for (int read = 0; read < count; ) {
+                int chunk = Math.min(count - read, SNAPSHOT_MAPPING / 4);
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, offset, 4L * chunk);
+                mapped.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(values, read, chunk);
+                read += chunk;
+                offset += 4L * chunk;
+            }
+
+            if (complete) {
+                load(values, count);
+            } else {
+                long[] shape = new long[(int) (shapeLength / 8)];
+                for (int read = 0; read < shape.length; ) {
+                    int chunk = Math.min(shape.length - read, SNAPSHOT_MAPPING / 8);
+                    MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, offset, 8L * chunk);
+                    mapped.order(ByteOrder.LITTLE_ENDIAN).asLongBuffer().get(shape, read, chunk);
+                    read += chunk;
+                    offset += 8L * chunk;
+                }
+                link(values, count, shape, height);
+            }
+            return (flags & HEAP_ORDERED) != 0;
+        }
+    }
+
+    /**
+     * Used to replace the content of the tree with the linked nodes of the specified shape
+     * @param values the values in level order
+     * @param count the number of values
+     * @param shape the bits of the shape, as written by getShapeOfTheTree
+     * @param height the number of levels written with the shape
+     * @throws IOException if the shape doesn't match the number of values or the height
+     */
+    protected void link(int[] values, int count, long[] shape, int height) throws IOException {
+        Node[] nodes = new Node[count];
+        for (int i = 0; i < count; i++) {
+            nodes[i] = new Node(values[i]);
+        }
+
+        // the children go in level order one after another, so the level
+        // ends where the children of the level above end
+        int next = 1;
+        int levels = count > 0 ? 1 : 0;
+        int levelEnd = 1;
+        for (long i = 0; i < count; i++) {
+            if (i == levelEnd) {
+                levels ++;
+                levelEnd = next;
+            }
+            long bit = 2 * i;
+            boolean hasLeft = (shape[(int) (bit >>> 6)] & (1L << bit)) != 0;
+            boolean hasRight = (shape[(int) ((bit + 1) >>> 6)] & (1L << (bit + 1))) != 0;
+            if ((hasLeft ? 1 : 0) + (hasRight ? 1 : 0) > count - next) {
+                throw new IOException("the shape of the tree snapshot is broken");
+            }
+            if (hasLeft) {
+                nodes[(int) i].left = nodes[next++];
+            }
+            if (hasRight) {
+                nodes[(int) i].right = nodes[next++];
+            }
+        }
+        if (next != count && count > 0) {
+            throw new IOException("the shape of the tree snapshot is broken");
+        }
+        if (levels != height) {
+            throw new IOException("the height of the tree snapshot is broken");
+        }
+
+        valueIndex = null;
+        countStored(values, count);
+        elements = new int[DEFAULT_CAPACITY];
+        root = count > 0 ? nodes[0] : null;
+        size = count;
+        implicit = false;
+        recomputeShape();
+    }
+}
+
+/**
+ * The priority queue of int values, the least value is taken first, it's the common type
+ * of the heaps, so the single-threaded and the thread-safe heaps can replace each other
+ * @author Masyukevych Nikita
+ * @version 1.0
+ */
+interface IntPriorityQueue {
+
+    /**
+     * Add the value to the queue
+     * @param value the value to be added
+     */
+    void offer(int value);
+
+    /**
+     * Get the least value without removing it
+     * @return the least value
+     * @throws NoSuchElementException if the queue is empty
+     */
+    int peek();
+
+    /**
+     * Remove the least value from the queue
+     * @return the removed value
+     * @throws NoSuchElementException if the queue is empty
+     */
+    int poll();
+
+    /**
+     * Get the number of values in the queue
+     * @return the number of values
+     */
+    int size();
+
+    /**
+     * Check if the queue is empty
+     * @return the boolean value indicating whether the queue is empty
+     */
+    boolean isEmpty();
+}
+
+/**
+ * The heap data structure
+ * @author Masyukevych Nikita
+ * @version 1.0
+ * @see <a href="https://en.wikipedia.org/wiki/Heap_(data_structure)">See more about this data structure</a>
+ */
+class Heap extends BinaryTree implements IntPriorityQueue {
+    /**
+     * The number of values from which the heaps are built in parallel by default,
+     * it's read once from the system property com.company.heap.parallelThreshold
+     */
+    protected static final int DEFAULT_PARALLEL_THRESHOLD =
+            Math.max(1, Integer.getInteger("com.company.heap.parallelThreshold", 1 << 17));
+
+    /**
+     * The number of values from which this heap is built in parallel
+     */
+    protected final int parallelThreshold;
+
+    /**
+     * Used to heapify the sub-trees in parallel, the sub-trees of both children
+     * are heapified concurrently, then the value of the sub-tree root is sifted down
+     */
+    protected class HeapifyTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The position of the sub-tree root
+         */
+        final int index;
+
+        /**
+         * The level of the sub-tree root, starting from 0
+         */
+        final int depth;
+
+        /**
+         * The constructor for HeapifyTask class
+         * @param index the position of the sub-tree root
+         * @param depth the level of the sub-tree root
+         */
+        HeapifyTask(int index, int depth) {
+            this.index = index;
+            this.depth = depth;
+        }
+
+        @Override
+        protected void compute() {
+            if (index >= size) {
+                return;
+            }
+
+            // the upper bound of the number of nodes in the sub-tree
+            long subtreeSize = (1L << (treeHeight() - depth)) - 1;
+            if (subtreeSize <= parallelThreshold) {
+                heapifySubtree(index);
+                return;
+            }
+
+            invokeAll(new HeapifyTask(2 * index + 1, depth + 1),
+                    new HeapifyTask(2 * index + 2, depth + 1));
+            siftDown(index, elements[index]);
+        }
+    }
+    /**
+     * Constructor to initialize the heap with values
+     * @param values values to add to the heap
+     */
+    public Heap(int[] values){
+        this(values, false);
+    }
+
+    /**
+     * Constructor to initialize the heap with values
+     * @param values values to add to the heap
+     * @param inPlace specify if the array itself should be heapified and used as the storage,
+     *                otherwise the values are copied and the array is left untouched
+     */
+    public Heap(int[] values, boolean inPlace){
+        this(values, inPlace, DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * Constructor to initialize the heap with values
+     * @param values values to add to the heap
+     * @param inPlace specify if the array itself should be heapified and used as the storage,
+     *                otherwise the values are copied and the array is left untouched
+     * @param parallelThreshold the number of values from which the heap is built in parallel
+     * @throws IllegalArgumentException if the threshold is not positive
+     */
+    public Heap(int[] values, boolean inPlace, int parallelThreshold){
+        if (parallelThreshold < 1) {
+            throw new IllegalArgumentException("the threshold must be positive");
+        }
+        this.parallelThreshold = parallelThreshold;
+        load(inPlace ? values : Arrays.copyOf(values, Math.max(values.length, DEFAULT_CAPACITY)), values.length);
+        heapify();
+    }
+
+    /**
+     * Constructor to initialize the tree with the same values
+     * @param fillWith the value to add a number of times
+     * @param size the number of times to add the value
+     */
+    public Heap(int fillWith, int size){
+        // the equal values are already in the heap order
+        super(fillWith, size);
+        parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+    }
+
+    /**
+     * Default constructor
+     */
+    public Heap (){
+        parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+    }
+
+    /**
+     * Used to make sure the heap is stored in the level-order array,
+     * the heap operations work on positions only
+     */
+    protected void ensureHeap(){
+        if (!implicit) {
+            restore();
+        }
+    }
+
+    /**
+     * Put the values of the level-order array in the heap order, going from the
+     * last parent to the root, which takes O(n) in total
+     */
+    protected void heapify(){
+        // the index is not kept up to date by the bulk build,
+        // it's built anew when the heap is ready
+        if (valueIndex != null) {
+            valueIndex = null;
+            heapify();
+            rebuildIndex();
+            return;
+        }
+
+        TreeMetrics.rebuilt(TreeMetrics.Rebuild.HEAPIFY);
+
+        // the large heaps are built with the fork-join pool, the result is
+        // the same, since the disjoint sub-trees don't affect each other
+        if (size > parallelThreshold && ForkJoinPool.getCommonPoolParallelism() > 1) {
+            ForkJoinPool.commonPool().invoke(new HeapifyTask(0, 0));
+            return;
+        }
+
+        for (int i = (size >>> 1) - 1; i >= 0; i--) {
+            siftDown(i, elements[i]);
+        }
+    }
+
+    /**
+     * Put the values of the sub-tree in the heap order, going level by level
+     * from the last parent to the sub-tree root
+     * @param index the position of the sub-tree root
+     */
+    protected void heapifySubtree(int index){
+        // find the range of positions taken by the sub-tree on each level
+        long[] firsts = new long[32];
+        long[] lasts = new long[32];
+        int levels = 0;
+        long first = index;
+        long last = index;
+        while (first < size) {
+            firsts[levels] = first;
+            lasts[levels] = Math.min(last, size - 1);
+            levels ++;
+            first = 2 * first + 1;
+            last = 2 * last + 2;
+        }
+
+        // the last level has no children, so start from the one above it
+        for (int level = levels - 2; level >= 0; level--) {
+            for (long i = lasts[level]; i >= firsts[level]; i--) {
+                siftDown((int) i, elements[(int) i]);
+            }
+        }
+    }
+
+    /**
+     * Create the heap with the sorted layout, where the values go in the
+     * ascending order level by level, large arrays are sorted in parallel
+     * @param values values to add to the heap, the array is left untouched
+     * @return the created heap
+     */
+    public static Heap sortedOf(int[] values){
+        int[] sorted = Arrays.copyOf(values, Math.max(values.length, DEFAULT_CAPACITY));
+        if (values.length > DEFAULT_PARALLEL_THRESHOLD) {
+            Arrays.parallelSort(sorted, 0, values.length);
+        } else {
+            Arrays.sort(sorted, 0, values.length);
+        }
+
+        // the sorted array is already in the heap order
+        Heap heap = new Heap();
+        heap.load(sorted, values.length);
+        return heap;
+    }
+
+    /**
+     * Used to drop the value at the position from the index before it's sifted,
+     * the sifted value is added to the index when it's placed
+     * @param index the position of the value
+     */
+    protected void unindex(int index){
+        if (valueIndex != null) {
+            valueIndex.delete(elements[index], index);
+        }
+    }
+
+    /**
+     * Move the value up from the specified position until its parent is not greater
+     * @param index the position of the hole to start from
+     * @param value the value to be placed
+     */
+    protected void siftUp(int index, int value){
+        // the fields are read once, the loop runs for every level
+        int[] elements = this.elements;
+        ValueIndex valueIndex = this.valueIndex;
+        int start = index;
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            int parentValue = elements[parent];
+            if (parentValue <= value) {
+                break;
+            }
+            // move the parent down into the hole
+            if (valueIndex != null) {
+                valueIndex.move(parentValue, parent, index);
+            }
+            elements[index] = parentValue;
+            index = parent;
+        }
+        // the visited parents are counted once after the loop: one for each level gone up,
+        // and the one, which stopped the value
+        visited += level(start) - level(index) + (index > 0 ? 1 : 0);
+        if (valueIndex != null) {
+            valueIndex.add(value, index);
+        }
+        elements[index] = value;
+    }
+
+    /**
+     * Get the level of the position, starting from 0 for the root
+     * @param index the level-order position
+     * @return the level
+     */
+    protected static int level(int index){
+        return 31 - Integer.numberOfLeadingZeros(index + 1);
+    }
+
+    /**
+     * Move the value down from the specified position until its children are not less
+     * @param index the position of the hole to start from
+     * @param value the value to be placed
+     * @return the position where the value is placed
+     */
+    protected int siftDown(int index, int value){
+        // the fields are read once, the loop runs for every level
+        int[] elements = this.elements;
+        ValueIndex valueIndex = this.valueIndex;
+        int size = this.size;
+        // the nodes from this position on have no children
+        int half = size >>> 1;
+        int start = index;
+        while (index < half) {
+            int child = 2 * index + 1;
+            int childValue = elements[child];
+            int right = child + 1;
+
+            // take the smaller one of the children
+            if (right < size && elements[right] < childValue) {
+                child = right;
+                childValue = elements[right];
+            }
+            if (value <= childValue) {
+                break;
+            }
+            // move the child up into the hole
+            if (valueIndex != null) {
+                valueIndex.move(childValue, child, index);
+            }
+            elements[index] = childValue;
+            index = child;
+        }
+        // the visited children are counted once after the loop: two for each level gone down,
+        // and two more, which stopped the value
+        visited += 2L * (level(index) - level(start) + (index < half ? 1 : 0));
+        if (valueIndex != null) {
+            valueIndex.add(value, index);
+        }
+        elements[index] = value;
+        return index;
+    }
+
+    /**
+     * Add the value to the end of the heap, retaining the heap order, the linked heap
+     * is restored first, so the value is never dropped by an incomplete tree
+     * @param value the value to be added
+     */
+    @Override
+    protected void doPushNode(int value){
+        doOffer(value);
+    }
+
+    /**
+     * Check if adding the number of values at once and heapifying the whole heap
+     * is cheaper than sifting up each value
+     * @param count the number of values to be added
+     * @return the boolean value indicating whether the heap should be built anew
+     */
+    protected boolean heapifyIsCheaper(int count){
+        return heapifyIsCheaper(size, count);
+    }
+
+    /**
+     * Check if adding the number of values at once and heapifying the whole heap
+     * is cheaper than sifting up each value, it's shared with MappedHeap
+     * @param size the number of values in the heap
+     * @param count the number of values to be added
+     * @return the boolean value indicating whether the heap should be built anew
+     */
+    static boolean heapifyIsCheaper(long size, long count){
+        long total = size + count;
+        int log = 64 - Long.numberOfLeadingZeros(total);
+        return count * log > 2 * total;
+    }
+
+    /**
+     * Add all the values to the heap, the large number of values is added
+     * at once and then the whole heap is built anew
+     * @param values the values to be added
+     */
+    @Override
+    public void pushAll(int[] values){
+        ensureHeap();
+        if (heapifyIsCheaper(values.length)) {
+            super.pushAll(values);
+            heapify();
+            return;
+        }
+        for (int value: values){
+            offer(value);
+        }
+    }
+
+    /**
+     * Check if applying the changes of the batch one by one is cheaper than rebuilding the storage,
+     * the large batch is applied at once and then the whole heap is built anew
+     * @param count the number of the changes
+     * @param removals the number of the removals among them
+     * @return the boolean value indicating whether the changes should be applied one by one
+     */
+    @Override
+    protected boolean replayIsCheaper(int count, int removals){
+        return !heapifyIsCheaper(count) && super.replayIsCheaper(count, removals);
+    }
+
+    /**
+     * Find the position of the value, any occurrence can be removed from the heap,
+     * so the indexed heap takes the beginning of the chain instead of the least position
+     * @param value the value to search for
+     * @return the position of the value or -1 if not present
+     */
+    @Override
+    protected int indexOf(int value){
+        if (valueIndex != null) {
+            visited ++;
+            return valueIndex.any(value);
+        }
+        return super.indexOf(value);
+    }
+
+    /**
+     * Used to replace the content of the heap with the values after the batch
+     * @param values the array to be used as the storage
+     * @param count the number of values in the array that belong to the heap
+     */
+    @Override
+    protected void replaceValues(int[] values, int count){
+        load(values, count);
+        heapify();
+    }
+
+    /**
+     * Used to get the heap of the values, which are not removed lazily, it is the heap
+     * the compaction would leave
+     * @return this heap if no values are removed lazily, otherwise the heap of the values left
+     */
+    @Override
+    protected BinaryTree liveTree(){
+        if (tombstones == null || tombstones.total == 0) {
+            return this;
+        }
+        return new Heap(getValuesOfTheTree(), true, parallelThreshold);
+    }
+
+    /**
+     * Move all the values of the other heap to this one, the other heap is left empty,
+     * the large heap is appended at once and the whole heap is built anew in linear time,
+     * the small one is added value by value
+     * @param other the heap to be melded
+     */
+    public void meld(Heap other){
+        TreeMetrics metrics = beginOperation();
+        if (metrics == null) {
+            doMeld(other);
+            return;
+        }
+        try {
+            doMeld(other);
+        } finally {
+            endOperation(metrics, TreeMetrics.Operation.MELD);
+        }
+    }
+
+    /**
+     * Used to move all the values of the other heap to this one, the operation is measured by meld
+     * @param other the heap to be melded
+     */
+    protected void doMeld(Heap other){
+        if (other == this) {
+            throw new IllegalArgumentException("the heap can't be melded with itself");
+        }
+        ensureHeap();
+        other.purge();
+        other.ensureHeap();
+        int count = other.size;
+        if (heapifyIsCheaper(count)) {
+            ensureCapacity(size + count);
+            System.arraycopy(other.elements, 0, elements, size, count);
+            for (int i = 0; i < count; i++) {
+                valueStored(other.elements[i]);
+            }
+            size += count;
+            heapify();
+        } else {
+            for (int i = 0; i < count; i++) {
+                offer(other.elements[i]);
+            }
+        }
+        other.load(new int[DEFAULT_CAPACITY], 0);
+    }
+
+    /**
+     * Add the value to the heap
+     * @param value the value to be added
+     */
+    @Override
+    public void offer(int value){
+        TreeMetrics metrics = beginOperation();
+        if (metrics == null) {
+            doOffer(value);
+            return;
+        }
+        try {
+            doOffer(value);
+        } finally {
+            endOperation(metrics, TreeMetrics.Operation.OFFER);
+        }
+    }
+
+    /**
+     * Used to add the value to the heap, the operation is measured by offer
+     * @param value the value to be added
+     */
+    protected void doOffer(int value){
+        ensureHeap();
+        ensureCapacity(size + 1);
+        valueStored(value);
+        siftUp(size++, value);
+    }
+
+    /**
+     * Get the least value of the heap without removing it, the lazily removed values
+     * on the top are taken away first, so peek may change the order of the stored values
+     * @return the value of the root node
+     * @throws NoSuchElementException if the heap is empty
+     */
+    @Override
+    public int peek(){
+        ensureHeap();
+        skipRemoved();
+        if (size == 0) {
+            throw new NoSuchElementException("the heap is empty");
+        }
+        return elements[0];
+    }
+
+    /**
+     * Check if the heap is empty, the lazily removed values are not counted
+     * @return the boolean value indicating whether the heap is empty
+     */
+    @Override
+    public boolean isEmpty(){
+        return size() == 0;
+    }
+
+    /**
+     * Used to take away the values marked as removed from the top of the heap
+     */
+    protected void skipRemoved(){
+        while (tombstones != null && size > 0 && tombstones.take(elements[0])) {
+            removeTop();
+        }
+    }
+
+    /**
+     * Used to remove the root value, the heap must not be empty
+     * @return the removed value
+     */
+    protected int removeTop(){
+        int top = elements[0];
+        unindex(0);
+        valueTaken(top);
+
+        // the last value takes the place of the root
+        int last = elements[--size];
+        if (size > 0) {
+            unindex(size);
+            siftDown(0, last);
+        }
+        return top;
+    }
+
+    /**
+     * Remove the least value from the heap
+     * @return the removed value
+     * @throws NoSuchElementException if the heap is empty
+     */
+    @Override
+    public int poll(){
+        TreeMetrics metrics = beginOperation();
+        if (metrics == null) {
+            return doPoll();
+        }
+        try {
+            return doPoll();
+        } finally {
+            endOperation(metrics, TreeMetrics.Operation.POLL);
+        }
+    }
+
+    /**
+     * Used to remove the least value from the heap, the operation is measured by poll
+     * @return the removed value
+     */
+    protected int doPoll(){
+        ensureHeap();
+        skipRemoved();
+        if (size == 0) {
+            throw new NoSuchElementException("the heap is empty");
+        }
+        return removeTop();
+    }
+
+    /**
+     * Replace the least value of the heap with the specified one,
+     * it's cheaper than poll followed by offer
+     * @param value the value to be added
+     * @return the removed value
+     * @throws NoSuchElementException if the heap is empty
+     */
+    public int replaceTop(int value){
+        TreeMetrics metrics = beginOperation();
+        if (metrics == null) {
+            return doReplaceTop(value);
+        }
+        try {
+            return doReplaceTop(value);
+        } finally {
+            endOperation(metrics, TreeMetrics.Operation.REPLACE_TOP);
+        }
+    }
+
+    /**
+     * Used to replace the least value of the heap, the operation is measured by replaceTop
+     * @param value the value to be added
+     * @return the removed value
+     */
+    protected int doReplaceTop(int value){
+        ensureHeap();
+        skipRemoved();
+        if (size == 0) {
+            throw new NoSuchElementException("the heap is empty");
+        }
+        int top = elements[0];
+        unindex(0);
+        valueTaken(top);
+        valueStored(value);
+        siftDown(0, value);
+        return top;
+    }
+
+    /**
+     * Remove the node by value, retaining the heap order
+     * @param value the value by which to search and delete the node
+     */
+    @Override
+    protected void doRemove(int value){
+        if (removeLazily(value)) {
+            return;
+        }
+
+        ensureHeap();
+        if (size == 0) {
+            System.out.println("cannot remove, the tree is empty");
+            return;
+        }
+
+        int index = indexOf(value);
+        if (index < 0) {
+            System.out.println("cannot remove, the value is not present");
+            return;
+        }
+
+        removeAt(index);
+    }
+
+    /**
+     * Used to remove the value at the position, retaining the heap order
+     * @param index the position of the removed value
+     */
+    @Override
+    protected void removeAt(int index){
+        // the last value takes the place of the removed one and
+        // is moved either down or up
+        unindex(index);
+        valueTaken(elements[index]);
+        int last = elements[--size];
+        if (index < size) {
+            unindex(size);
+            if (siftDown(index, last) == index) {
+                unindex(index);
+                siftUp(index, last);
+            }
+        }
+    }
+
+    /**
+     * Restore the heap
+     */
+    @Override
+    protected void doRestore(){
+        purge();
+
+        if (size == 0) {
+            return;
+        }
+
+        // move the linked nodes back to the level-order array
+        if (!implicit) {
+            pack();
+        }
+        heapify();
+    }
+
+    /**
+     * Check if the values of the heap are in the heap order
+     * @return the boolean value indicating whether the heap is stored in the level-order array
+     */
+    @Override
+    protected boolean heapOrdered(){
+        return implicit;
+    }
+
+    /**
+     * Replace the content of the heap with the snapshot written by writeSnapshot,
+     * the snapshot of the heap is loaded as it is, the other ones are heapified
+     * @param file the file to be read
+     * @throws IOException if the file can't be read or it's not the snapshot
+     */
+    @Override
+    public void readSnapshot(Path file) throws IOException {
+        if (!readSnapshotData(file) || !implicit) {
+            restore();
+        }
+    }
+}
+
+/**
+ * The selector of the K largest or the K least values of the stream, it's the heap of the fixed capacity,
+ * which keeps the worst of the selected values on top, so each next value is compared with the top
+ * and either replaces it or is dropped, the memory is O(K) whatever the length of the stream is
+ * @author Masyukevich Nikita
+ * @version 1.0
+ * @see <a href="https://en.wikipedia.org/wiki/Partial_sorting">See more about this algorithm</a>
+ */
+class TopK {
+    /**
+     * The selected values, the least values are kept as their bitwise complements,
+     * which reverses the order, so the worst selected value is always on top
+     */
+    protected final Heap heap = new Heap();
+
+    /**
+     * The number of values to be selected
+     */
+    protected final int capacity;
+
+    /**
+     * Specify if the largest values are selected, otherwise the least ones
+     */
+    protected final boolean largest;
+
+    /**
+     * Constructor to initialize the selector
+     * @param capacity the number of values to be selected
+     * @param largest specify if the largest values are selected, otherwise the least ones
+     */
+    public TopK(int capacity, boolean largest){
+        if (capacity < 1) {
+            throw new IllegalArgumentException("the selector needs to keep at least one value");
+        }
+        this.capacity = capacity;
+        this.largest = largest;
+        heap.ensureCapacity(capacity);
+    }
+
+    /**
+     * Select the K values of the stream, the parallel stream is split between the threads,
+     * each of them selects its own K values and then the selectors are merged
+     * @param values the stream of values
+     * @param capacity the number of values to be selected
+     * @param largest specify if the largest values are selected, otherwise the least ones
+     * @return the selector with the selected values
+     */
+    public static TopK of(IntStream values, int capacity, boolean largest){
+        return values.collect(() -> new TopK(capacity, largest), TopK::accept, TopK::merge);
+    }
+
+    /**
+     * Select the K values of the array
+     * @param values the array of values
+     * @param capacity the number of values to be selected
+     * @param largest specify if the largest values are selected, otherwise the least ones
+     * @param parallel specify if the array is split between the threads
+     * @return the selector with the selected values
+     */
+    public static TopK of(int[] values, int capacity, boolean largest, boolean parallel){
+        if (!parallel) {
+            TopK selector = new TopK(capacity, largest);
+            selector.accept(values, 0, values.length);
+            return selector;
+        }
+        return of(Arrays.stream(values).parallel(), capacity, largest);
+    }
+
+    /**
+     * Select the K values of the spliterator
+     * @param values the spliterator of values
+     * @param capacity the number of values to be selected
+     * @param largest specify if the largest values are selected, otherwise the least ones
+     * @param parallel specify if the spliterator is split between the threads
+     * @return the selector with the selected values
+     */
+    public static TopK of(Spliterator.OfInt values, int capacity, boolean largest, boolean parallel){
+        return of(StreamSupport.intStream(values, parallel), capacity, largest);
+    }
+
+    /**
+     * Used to get the key of the value, the better values have the greater keys
+     * @param value the value
+     * @return the key of the value in the heap
+     */
+    protected int key(int value){
+        return largest ? value : ~value;
+    }
+
+    /**
+     * Used to offer the key to the heap, the key replaces the top of the full heap
+     * only if it's greater, so the heap never grows past the capacity
+     * @param key the key to be offered
+     */
+    protected void acceptKey(int key){
+        if (heap.size < capacity) {
+            heap.offer(key);
+        } else if (key > heap.elements[0]) {
+            heap.siftDown(0, key);
+        }
+    }
+
+    /**
+     * Offer the value to the selector
+     * @param value the value to be offered
+     */
+    public void accept(int value){
+        acceptKey(largest ? value : ~value);
+    }
+
+    /**
+     * Offer the chunk of the array to the selector
+     * @param values the array of values
+     * @param from the index of the first value to be offered
+     * @param to the index after the last value to be offered
+     */
+    public void accept(int[] values, int from, int to){
+        for (int i = from; i < to; i++) {
+            acceptKey(largest ? values[i] : ~values[i]);
+        }
+    }
+
+    /**
+     * Offer all values of the stream to the selector one by one
+     * @param values the stream of values
+     */
+    public void accept(IntStream values){
+        values.sequential().forEach(this::accept);
+    }
+
+    /**
+     * Offer the remaining values of the spliterator to the selector
+     * @param values the spliterator of values
+     */
+    public void accept(Spliterator.OfInt values){
+        values.forEachRemaining((IntConsumer) this::accept);
+    }
+
+    /**
+     * Offer the values selected by the other selector, which selects the same end of the stream
+     * @param other the selector to be merged
+     */
+    public void merge(TopK other){
+        if (other.largest != largest) {
+            throw new IllegalArgumentException("the selectors keep the different ends of the stream");
+        }
+        for (int i = 0; i < other.heap.size; i++) {
+            acceptKey(other.heap.elements[i]);
+        }
+    }
+
+    /**
+     * Get the number of selected values
+     * @return the number of selected values, at most the capacity
+     */
+    public int size(){
+        return heap.size;
+    }
+
+    /**
+     * Get the worst of the selected values, which the next value has to beat
+     * @return the K-th largest or the K-th least value seen so far
+     * @throws NoSuchElementException if no value is selected
+     */
+    public int peek(){
+        return key(heap.peek());
+    }
+
+    /**
+     * Remove all selected values, the storage is kept for the next stream
+     */
+    public void clear(){
+        heap.size = 0;
+    }
+
+    /**
+     * Get the selected values from the best to the worst one
+     * @return the int array of the selected values
+     */
+    public int[] toArray(){
+        int[] keys = Arrays.copyOf(heap.elements, heap.size);
+        Arrays.sort(keys);
+
+        // the greater keys are the better values
+        int[] values = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            values[i] = key(keys[keys.length - 1 - i]);
+        }
+        return values;
+    }
+}
+
+/**
+ * The pointer-based heap, which melds two heaps in O(1) and removes the least value in amortized O(log n),
+ * it's made of the tree nodes, the left link of the node is its first child and the right link
+ * is its next sibling, so the children of the node form the list, and each root is not greater than its children
+ * @author Masyukevich Nikita
+ * @version 1.0
+ * @see <a href="https://en.wikipedia.org/wiki/Pairing_heap">See more about this data structure</a>
+ */
+class PairingHeap implements IntPriorityQueue {
+    /**
+     * The node with the least value
+     */
+    protected BinaryTree.Node root;
+
+    /**
+     * The number of values in the heap
+     */
+    protected int size;
+
+    /**
+     * Default constructor
+     */
+    public PairingHeap(){
+    }
+
+    /**
+     * Constructor to initialize the heap with values
+     * @param values values to add to the heap
+     */
+    public PairingHeap(int[] values){
+        for (int value: values) {
+            offer(value);
+        }
+    }
+
+    /**
+     * Used to link two roots, the greater one becomes the first child of the other
+     * @param first the first root, it has no siblings
+     * @param second the second root, it has no siblings
+     * @return the root of the linked heap
+     */
+    protected static BinaryTree.Node link(BinaryTree.Node first, BinaryTree.Node second){
+        if (first == null) {
+            return second;
+        }
+        if (second == null) {
+            return first;
+        }
+        if (second.value < first.value) {
+            BinaryTree.Node swap = first;
+            first = second;
+            second = swap;
+        }
+        second.right = first.left;
+        first.left = second;
+        return first;
+    }
+
+    /**
+     * Used to link the list of siblings into one heap with two passes, first the siblings are linked
+     * in pairs from left to right, then the pairs are linked from right to left, without recursion
+     * @param first the first sibling
+     * @return the root of the linked heap
+     */
+    protected static BinaryTree.Node linkSiblings(BinaryTree.Node first){
+        if (first == null || first.right == null) {
+            return first;
+        }
+
+        // the linked pairs are kept in the list through the right links, the last pair first
+        BinaryTree.Node pairs = null;
+        while (first != null) {
+            BinaryTree.Node second = first.right;
+            if (second == null) {
+                first.right = pairs;
+                pairs = first;
+                break;
+            }
+            BinaryTree.Node next = second.right;
+            first.right = null;
+            second.right = null;
+            BinaryTree.Node pair = link(first, second);
+            pair.right = pairs;
+            pairs = pair;
+            first = next;
+        }
+
+        BinaryTree.Node result = pairs;
+        pairs = pairs.right;
+        result.right = null;
+        while (pairs != null) {
+            BinaryTree.Node next = pairs.right;
+            pairs.right = null;
+            result = link(result, pairs);
+            pairs = next;
+        }
+        return result;
+    }
+
+    /**
+     * Add the value to the heap
+     * @param value the value to be added
+     */
+    @Override
+    public void offer(int value){
+        root = link(root, new BinaryTree.Node(value));
+        size ++;
+    }
+
+    /**
+     * Move all the values of the other heap to this one in O(1), the other heap is left empty
+     * @param other the heap to be melded
+     */
+    public void meld(PairingHeap other){
+        if (other == this) {
+            throw new IllegalArgumentException("the heap can't be melded with itself");
+        }
+        root = link(root, other.root);
+        size += other.size;
+        other.root = null;
+        other.size = 0;
+    }
+
+    /**
+     * Get the least value of the heap without removing it
+     * @return the value of the root node
+     * @throws NoSuchElementException if the heap is empty
+     */
+    @Override
+    public int peek(){
+        if (root == null) {
+            throw new NoSuchElementException("the heap is empty");
+        }
+        return root.value;
+    }
+
+    /**
+     * Remove the least value from the heap, the children of the root are linked into the new heap
+     * @return the removed value
+     * @throws NoSuchElementException if the heap is empty
+     */
+    @Override
+    public int poll(){
+        if (root == null) {
+            throw new NoSuchElementException("the heap is empty");
+        }
+        int top = root.value;
+        root = linkSiblings(root.left);
+        size --;
+        return top;
+    }
+
+    /**
+     * Get the number of values in the heap
+     * @return the number of values
+     */
+    @Override
+    public int size(){
+        return size;
+    }
+
+    /**
+     * Check if the heap is empty
+     * @return the boolean value indicating whether the heap is empty
+     */
+    @Override
+    public boolean isEmpty(){
+        return root == null;
+    }
+}
+
+/**
+ * The heap, in which every node has d children (d is 2, 4, 8 or 16), so the heap is log2(d) times lower
+ * than the binary one, and the sift down visits fewer levels, each of them a likely cache miss,
+ * the storage is shifted by d - 1 slots, so the children of each node start at a multiple of d
+ * and lie next to each other, and the group of 4 or 8 children shares one or two cache lines
+ * @author Masyukevich Nikita
+ * @version 1.0
+ * @see <a href="https://en.wikipedia.org/wiki/D-ary_heap">See more about this data structure</a>
+ */
+class DaryHeap implements IntPriorityQueue {
+    /**
+     * The number of values, for which the storage is allocated by default
+     */
+    protected static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * The number of children of each node
+     */
+    protected final int arity;
+
+    /**
+     * The binary logarithm of the arity
+     */
+    protected final int shift;
+
+    /**
+     * The index of the root in the storage, the slots before it are not used
+     */
+    protected final int root;
+
+    /**
+     * The storage of the values in level order, starting from the root index
+     */
+    protected int[] elements;
+
+    /**
+     * The number of values in the heap
+     */
+    protected int size;
+
+    /**
+     * Constructor to initialize the empty heap
+     * @param arity the number of children of each node, 2, 4, 8 or 16
+     */
+    public DaryHeap(int arity){
+        if (arity < 2 || arity > 16 || Integer.bitCount(arity) != 1) {
+            throw new IllegalArgumentException("the arity must be 2, 4, 8 or 16");
+        }
+        this.arity = arity;
+        this.shift = Integer.numberOfTrailingZeros(arity);
+        this.root = arity - 1;
+        this.elements = new int[root + DEFAULT_CAPACITY];
+    }
+
+    /**
+     * Constructor to initialize the heap with values
+     * @param arity the number of children of each node, 2, 4, 8 or 16
+     * @param values values to add to the heap
+     */
+    public DaryHeap(int arity, int[] values){
+        this(arity);
+        ensureCapacity(values.length);
+        System.arraycopy(values, 0, elements, root, values.length);
+        size = values.length;
+        heapify();
+    }
+
+    /**
+     * Used to make sure the storage can hold the number of values
+     * @param capacity the number of values
+     */
+    protected void ensureCapacity(int capacity){
+        int required = root + capacity;
+        if (required > elements.length) {
+            // grow by half of the current length to get amortized constant appends
+            elements = Arrays.copyOf(elements, Math.max(required, elements.length + (elements.length >> 1)));
+        }
+    }
+
+    /**
+     * Used to get the index of the first child
+     * @param index the index of the parent
+     * @return the index of the first child in the storage
+     */
+    protected int firstChild(int index){
+        // the children of the logical position i are at d * i + 1 ... d * i + d,
+        // which is d * (index - d + 2) after the shift by d - 1
+        return (index - arity + 2) << shift;
+    }
+
+    /**
+     * Used to get the index of the parent
+     * @param index the index of the child
+     * @return the index of the parent in the storage
+     */
+    protected int parent(int index){
+        return (index >>> shift) + arity - 2;
+    }
+
+    /**
+     * Used to move the value from the index up until its parent is not greater,
+     * the parents are moved down into the hole instead of swapping
+     * @param index the index of the hole
+     * @param value the value to be placed
+     */
+    protected void siftUp(int index, int value){
+        while (index > root) {
+            int parent = parent(index);
+            int parentValue = elements[parent];
+            if (parentValue <= value) {
+                break;
+            }
+            elements[index] = parentValue;
+            index = parent;
+        }
+        elements[index] = value;
+    }
+
+    /**
+     * Used to move the value from the index down until its children are not less,
+     * the least child is moved up into the hole instead of swapping
+     * @param index the index of the hole
+     * @param value the value to be placed
+     */
+    protected void siftDown(int index, int value){
+        // the fields are read once, the loop runs for every level
+        int[] elements = this.elements;
+        int arity = this.arity;
+        int end = root + size;
+
+        // the index is compared with the last parent, since the index of the child
+        // overflows for the leaves of the large heap
+        int lastParent = parent(end - 1);
+        while (index <= lastParent) {
+            int child = firstChild(index);
+
+            // find the least of the children, they lie next to each other
+            int least = child;
+            int leastValue = elements[child];
+            if (arity == 2) {
+                if (child + 1 < end && elements[child + 1] < leastValue) {
+                    least = child + 1;
+                    leastValue = elements[least];
+                }
+            } else {
+                int last = Math.min(child + arity, end);
+                for (int i = child + 1; i < last; i++) {
+                    int childValue = elements[i];
+                    if (childValue < leastValue) {
+                        least = i;
+                        leastValue = childValue;
+                    }
+                }
+            }
+            if (value <= leastValue) {
+                break;
+            }
+            elements[index] = leastValue;
+            index = least;
+        }
+        elements[index] = value;
+    }
+
+    /**
+     * Put the values in the heap order, going from the last parent to the root
+     */
+    protected void heapify(){
+        if (size < 2) {
+            return;
+        }
+        for (int i = parent(root + size - 1); i >= root; i--) {
+            siftDown(i, elements[i]);
+        }
+    }
+
+    /**
+     * Add the value to the heap
+     * @param value the value to be added
+     */
+    @Override
+    public void offer(int value){
+        ensureCapacity(size + 1);
+        siftUp(root + size++, value);
+    }
+
+    /**
+     * Add all the values to the heap, the large number of values is added
+     * at once and then the whole heap is built anew
+     * @param values the values to be added
+     */
+    public void pushAll(int[] values){
+        ensureCapacity(size + values.length);
+        long total = (long) size + values.length;
+        if ((long) values.length * (64 - Long.numberOfLeadingZeros(total)) <= 2 * total) {
+            for (int value: values) {
+                offer(value);
+            }
+            return;
+        }
+
+        System.arraycopy(values, 0, elements, root + size, values.length);
+        size += values.length;
+        heapify();
+    }
+
+    /**
+     * Get the least value of the heap without removing it
+     * @return the value of the root
+     * @throws NoSuchElementException if the heap is empty
+     */
+    @Override
+    public int peek(){
+        if (size == 0) {
+            throw new NoSuchElementException("the heap is empty");
+        }
+        return elements[root];
+    }
+
+    /**
+     * Remove the least value from the heap
+     * @return the removed value
+     * @throws NoSuchElementException if the heap is empty
+     */
+    @Override
+    public int poll(){
+        if (size == 0) {
+            throw new NoSuchElementException("the heap is empty");
+        }
+        int top = elements[root];
+
+        // the last value takes the place of the root
+        int last = elements[root + --size];
+        if (size > 0) {
+            siftDown(root, last);
+        }
+        return top;
+    }
+
+    /**
+     * Replace the least value of the heap with the specified one,
+     * it's cheaper than poll followed by offer
+     * @param value the value to be added
+     * @return the removed value
+     * @throws NoSuchElementException if the heap is empty
+     */
+    public int replaceTop(int value){
+        if (size == 0) {
+            throw new NoSuchElementException("the heap is empty");
+        }
+        int top = elements[root];
+        siftDown(root, value);
+        return top;
+    }
+
+    /**
+     * Get the number of values in the heap
+     * @return the number of values
+     */
+    @Override
+    public int size(){
+        return size;
+    }
+
+    /**
+     * Check if the heap is empty
+     * @return the boolean value indicating whether the heap is empty
+     */
+    @Override
+    public boolean isEmpty(){
+        return size == 0;
+    }
+
+    /**
+     * Get the values of the heap in level order
+     * @return the int array of all values
+     */
+    public int[] getValuesOfTheTree(){
+        return Arrays.copyOfRange(elements, root, root + size);
+    }
+}
+
+/**
+ * The heap of the entries made of the long key, by which the entries are ordered, and the long payload,
+ * for example the time and the id of the task, the keys and the payloads are kept in two parallel
+ * primitive arrays in level order, so there are no objects for the entries and no boxing
+ * @author Masyukevich Nikita
+ * @version 1.0
+ * @see <a href="https://en.wikipedia.org/wiki/AoS_and_SoA">See more about the storage</a>
+ */
+class KeyedHeap {
+    /**
+     * The number of entries, for which the storage is allocated by default
+     */
+    protected static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * The keys of the entries in level order
+     */
+    protected long[] keys;
+
+    /**
+     * The payloads of the entries, at the same positions as their keys
+     */
+    protected long[] payloads;
+
+    /**
+     * The number of entries in the heap
+     */
+    protected int size;
+
+    /**
+     * Default constructor
+     */
+    public KeyedHeap(){
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor to initialize the empty heap
+     * @param capacity the number of entries the heap can hold without growing
+     */
+    public KeyedHeap(int capacity){
+        keys = new long[Math.max(capacity, 1)];
+        payloads = new long[keys.length];
+    }
+
+    /**
+     * Used to make sure the storage can hold the number of entries
+     * @param capacity the number of entries
+     */
+    protected void ensureCapacity(int capacity){
+        if (capacity > keys.length) {
+            // grow by half of the current length to get amortized constant appends
+            int newCapacity = Math.max(capacity, keys.length + (keys.length >> 1));
+            keys = Arrays.copyOf(keys, newCapacity);
+            payloads = Arrays.copyOf(payloads, newCapacity);
+        }
+    }
+
+    /**
+     * Used to move the entry from the index up until the key of its parent is not greater,
+     * the parents are moved down into the hole instead of swapping
+     * @param index the index of the hole
+     * @param key the key of the entry
+     * @param payload the payload of the entry
+     */
+    protected void siftUp(int index, long key, long payload){
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            long parentKey = keys[parent];
+            if (parentKey <= key) {
+                break;
+            }
+            keys[index] = parentKey;
+            payloads[index] = payloads[parent];
+            index = parent;
+        }
+        keys[index] = key;
+        payloads[index] = payload;
+    }
+
+    /**
+     * Used to move the entry from the index down until the keys of its children are not less,
+     * the least child is moved up into the hole instead of swapping
+     * @param index the index of the hole
+     * @param key the key of the entry
+     * @param payload the payload of the entry
+     */
+    protected void siftDown(int index, long key, long payload){
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            long childKey = keys[child];
+            int right = child + 1;
+            if (right < size && keys[right] < childKey) {
+                child = right;
+                childKey = keys[right];
+            }
+            if (key <= childKey) {
+                break;
+            }
+            keys[index] = childKey;
+            payloads[index] = payloads[child];
+            index = child;
+        }
+        keys[index] = key;
+        payloads[index] = payload;
+    }
+
+    /**
+     * Add the entry to the heap
+     * @param key the key by which the entry is ordered
+     * @param payload the payload of the entry
+     */
+    public void offer(long key, long payload){
+        ensureCapacity(size + 1);
+        siftUp(size++, key, payload);
+    }
+
+    /**
+     * Get the least key of the heap without removing its entry
+     * @return the key of the root entry
+     * @throws NoSuchElementException if the heap is empty
+     */
+    public long peekKey(){
+        if (size == 0) {
+            throw new NoSuchElementException("the heap is empty");
+        }
+        return keys[0];
+    }
+
+    /**
+     * Get the payload of the entry with the least key without removing it
+     * @return the payload of the root entry
+     * @throws NoSuchElementException if the heap is empty
+     */
+    public long peekPayload(){
+        if (size == 0) {
+            throw new NoSuchElementException("the heap is empty");
+        }
+        return payloads[0];
+    }
+
+    /**
+     * Remove the entry with the least key from the heap, its key can be read
+     * with peekKey beforehand
+     * @return the payload of the removed entry
+     * @throws NoSuchElementException if the heap is empty
+     */
+    public long pollPayload(){
+        if (size == 0) {
+            throw new NoSuchElementException("the heap is empty");
+        }
+        long top = payloads[0];
+
+        // the last entry takes the place of the root
+        int last = --size;
+        if (size > 0) {
+            siftDown(0, keys[last], payloads[last]);
+        }
+        return top;
+    }
+
+    /**
+     * Replace the entry with the least key with the specified one,
+     * it's cheaper than pollPayload followed by offer
+     * @param key the key of the entry to be added
+     * @param payload the payload of the entry to be added
+     * @return the payload of the removed entry
+     * @throws NoSuchElementException if the heap is empty
+     */
+    public long replaceTop(long key, long payload){
+        if (size == 0) {
+            throw new NoSuchElementException("the heap is empty");
+        }
+        long top = payloads[0];
+        siftDown(0, key, payload);
+        return top;
+    }
+
+    /**
+     * Get the number of entries in the heap
+     * @return the number of entries
+     */
+    public int size(){
+        return size;
+    }
+
+    /**
+     * Check if the heap is empty
+     * @return the boolean value indicating whether the heap is empty
+     */
+    public boolean isEmpty(){
+        return size == 0;
+    }
+
+    /**
+     * Remove all entries, the storage is kept for the next ones
+     */
+    public void clear(){
+        size = 0;
+    }
+}
+
+/**
+ * The heap, in which every entry has the stable handle, so the key of the entry can be changed or
+ * the entry can be removed in O(log n) without searching for it, the handles are kept in level order
+ * next to their keys, and the position of each handle is kept in the array indexed by the handle
+ * @author Masyukevich Nikita
+ * @version 1.0
+ * @see <a href="https://algs4.cs.princeton.edu/24pq/">See more about this data structure</a>
+ */
+class IndexedHeap {
+    /**
+     * The number of entries, for which the storage is allocated by default
+     */
+    protected static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * The keys of the entries in level order
+     */
+    protected long[] keys;
+
+    /**
+     * The handles of the entries in level order
+     */
+    protected int[] handles;
+
+    /**
+     * The position of each handle in level order, or -1 if the handle is free
+     */
+    protected int[] positions;
+
+    /**
+     * The free handles, the next one on top, they are used again by the next entries
+     */
+    protected int[] freeHandles;
+
+    /**
+     * The number of free handles
+     */
+    protected int free;
+
+    /**
+     * The number of handles ever given out
+     */
+    protected int issued;
+
+    /**
+     * The number of entries in the heap
+     */
+    protected int size;
+
+    /**
+     * Default constructor
+     */
+    public IndexedHeap(){
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor to initialize the empty heap
+     * @param capacity the number of entries the heap can hold without growing
+     */
+    public IndexedHeap(int capacity){
+        capacity = Math.max(capacity, 1);
+        keys = new long[capacity];
+        handles = new int[capacity];
+        positions = new int[capacity];
+        freeHandles = new int[capacity];
+    }
+
+    /**
+     * Used to make sure the storage can hold the number of entries
+     * @param capacity the number of entries
+     */
+    protected void ensureCapacity(int capacity){
+        if (capacity > keys.length) {
+            // grow by half of the current length to get amortized constant appends
+            int newCapacity = Math.max(capacity, keys.length + (keys.length >> 1));
+            keys = Arrays.copyOf(keys, newCapacity);
+            handles = Arrays.copyOf(handles, newCapacity);
+            positions = Arrays.copyOf(positions, newCapacity);
+            freeHandles = Arrays.copyOf(freeHandles, newCapacity);
+        }
+    }
+
+    /**
+     * Used to get the position of the entry
+     * @param handle the handle of the entry
+     * @return the position of the entry in level order
+     * @throws NoSuchElementException if there is no entry with the handle
+     */
+    protected int positionOf(int handle){
+        if (handle < 0 || handle >= issued || positions[handle] < 0) {
+            throw new NoSuchElementException("there is no entry with the handle " + handle);
+        }
+        return positions[handle];
+    }
+
+    /**
+     * Used to place the entry at the position
+     * @param index the position
+     * @param key the key of the entry
+     * @param handle the handle of the entry
+     */
+    protected void place(int index, long key, int handle){
+        keys[index] = key;
+        handles[index] = handle;
+        positions[handle] = index;
+    }
+
+    /**
+     * Used to move the entry from the index up until the key of its parent is not greater,
+     * the parents are moved down into the hole instead of swapping
+     * @param index the index of the hole
+     * @param key the key of the entry
+     * @param handle the handle of the entry
+     * @return the final position of the entry
+     */
+    protected int siftUp(int index, long key, int handle){
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            long parentKey = keys[parent];
+            if (parentKey <= key) {
+                break;
+            }
+            place(index, parentKey, handles[parent]);
+            index = parent;
+        }
+        place(index, key, handle);
+        return index;
+    }
+
+    /**
+     * Used to move the entry from the index down until the keys of its children are not less,
+     * the least child is moved up into the hole instead of swapping
+     * @param index the index of the hole
+     * @param key the key of the entry
+     * @param handle the handle of the entry
+     * @return the final position of the entry
+     */
+    protected int siftDown(int index, long key, int handle){
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            long childKey = keys[child];
+            int right = child + 1;
+            if (right < size && keys[right] < childKey) {
+                child = right;
+                childKey = keys[right];
+            }
+            if (key <= childKey) {
+                break;
+            }
+            place(index, childKey, handles[child]);
+            index = child;
+        }
+        place(index, key, handle);
+        return index;
+    }
+
+    /**
+     * Add the entry to the heap
+     * @param key the key by which the entry is ordered
+     * @return the handle of the entry, it stays the same until the entry is removed
+     */
+    public int offer(long key){
+        ensureCapacity(size + 1);
+        int handle = free > 0 ? freeHandles[--free] : issued++;
+        siftUp(size++, key, handle);
+        return handle;
+    }
+
+    /**
+     * Check if there is the entry with the handle
+     * @param handle the handle of the entry
+     * @return the boolean value indicating whether the entry is in the heap
+     */
+    public boolean contains(int handle){
+        return handle >= 0 && handle < issued && positions[handle] >= 0;
+    }
+
+    /**
+     * Get the key of the entry
+     * @param handle the handle of the entry
+     * @return the key of the entry
+     * @throws NoSuchElementException if there is no entry with the handle
+     */
+    public long key(int handle){
+        return keys[positionOf(handle)];
+    }
+
+    /**
+     * Get the least key of the heap without removing its entry
+     * @return the key of the root entry
+     * @throws NoSuchElementException if the heap is empty
+     */
+    public long peekKey(){
+        if (size == 0) {
+            throw new NoSuchElementException("the heap is empty");
+        }
+        return keys[0];
+    }
+
+    /**
+     * Get the handle of the entry with the least key without removing it
+     * @return the handle of the root entry
+     * @throws NoSuchElementException if the heap is empty
+     */
+    public int peekHandle(){
+        if (size == 0) {
+            throw new NoSuchElementException("the heap is empty");
+        }
+        return handles[0];
+    }
+
+    /**
+     * Remove the entry with the least key from the heap, its key can be read
+     * with peekKey beforehand
+     * @return the handle of the removed entry, it's free to be given to the next entry
+     * @throws NoSuchElementException if the heap is empty
+     */
+    public int poll(){
+        if (size == 0) {
+            throw new NoSuchElementException("the heap is empty");
+        }
+        int handle = handles[0];
+        removeAt(0);
+        return handle;
+    }
+
+    /**
+     * Remove the entry by its handle, retaining the heap order
+     * @param handle the handle of the entry
+     * @throws NoSuchElementException if there is no entry with the handle
+     */
+    public void remove(int handle){
+        removeAt(positionOf(handle));
+    }
+
+    /**
+     * Used to remove the entry at the position, the last entry takes its place
+     * and is moved either down or up
+     * @param index the position of the entry
+     */
+    protected void removeAt(int index){
+        int handle = handles[index];
+        positions[handle] = -1;
+        freeHandles[free++] = handle;
+
+        int last = --size;
+        if (index < last) {
+            long lastKey = keys[last];
+            int lastHandle = handles[last];
+            if (siftDown(index, lastKey, lastHandle) == index) {
+                siftUp(index, lastKey, lastHandle);
+            }
+        }
+    }
+
+    /**
+     * Change the key of the entry to the less one, the entry is moved up
+     * @param handle the handle of the entry
+     * @param key the new key of the entry
+     * @throws NoSuchElementException if there is no entry with the handle
+     * @throws IllegalArgumentException if the new key is greater than the current one
+     */
+    public void decreaseKey(int handle, long key){
+        int index = positionOf(handle);
+        if (key > keys[index]) {
+            throw new IllegalArgumentException("the new key is greater than the current one");
+        }
+        siftUp(index, key, handle);
+    }
+
+    /**
+     * Change the key of the entry to the greater one, the entry is moved down
+     * @param handle the handle of the entry
+     * @param key the new key of the entry
+     * @throws NoSuchElementException if there is no entry with the handle
+     * @throws IllegalArgumentException if the new key is less than the current one
+     */
+    public void increaseKey(int handle, long key){
+        int index = positionOf(handle);
+        if (key < keys[index]) {
+            throw new IllegalArgumentException("the new key is less than the current one");
+        }
+        siftDown(index, key, handle);
+    }
+
+    /**
+     * Change the key of the entry, the entry is moved up or down
+     * @param handle the handle of the entry
+     * @param key the new key of the entry
+     * @throws NoSuchElementException if there is no entry with the handle
+     */
+    public void update(int handle, long key){
+        int index = positionOf(handle);
+        if (key < keys[index]) {
+            siftUp(index, key, handle);
+        } else {
+            siftDown(index, key, handle);
+        }
+    }
+
+    /**
+     * Get the number of entries in the heap
+     * @return the number of entries
+     */
+    public int size(){
+        return size;
+    }
+
+    /**
+     * Check if the heap is empty
+     * @return the boolean value indicating whether the heap is empty
+     */
+    public boolean isEmpty(){
+        return size == 0;
+    }
+}
+
+/**
+ * The thread-safe heap for many producers and consumers, it's a lock-free skip list of the values
+ * instead of the level-order array, so the threads don't wait for each other on a single lock,
+ * the price is paid by every call: each value is boxed into the entry of the skip list and each
+ * operation walks O(log n) linked towers, so on a single thread offer and poll of a million values
+ * take about 4 µs against 0.25 µs of Heap, it pays off only when many threads share the heap
+ * at once and the lock of Heap is contended, otherwise Heap (or Heap behind a lock, or MultiQueue,
+ * if the order may be relaxed) is the better IntPriorityQueue
+ * @author Masyukevich Nikita
+ * @version 1.0
+ * @see <a href="https://en.wikipedia.org/wiki/Skip_list">See more about this data structure</a>
+ */
+class ConcurrentHeap implements IntPriorityQueue {
+    /**
+     * The entries of the heap, each entry keeps the value in the high half and
+     * the sequence number in the low half, so the equal values are different entries
+     */
+    protected final ConcurrentSkipListSet<Long> entries = new ConcurrentSkipListSet<>();
+
+    /**
+     * The counter used to number the entries
+     */
+    protected final AtomicInteger sequence = new AtomicInteger();
+
+    /**
+     * The number of values in the heap, the size of the skip list takes linear time
+     */
+    protected final LongAdder size = new LongAdder();
+
+    /**
+     * Constructor to initialize the heap with values
+     * @param values values to add to the heap
+     */
+    public ConcurrentHeap(int[] values){
+        for (int value: values){
+            offer(value);
+        }
+    }
+
+    /**
+     * Default constructor
+     */
+    public ConcurrentHeap(){
+    }
+
+    /**
+     * Used to make the entry of the value
+     * @param value the value
+     * @param number the sequence number
+     * @return the entry
+     */
+    protected static long entry(int value, int number){
+        return ((long) value << 32) | (number & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Add the value to the heap
+     * @param value the value to be added
+     */
+    @Override
+    public void offer(int value){
+        // the sequence number can wrap around, then the entry is
+        // numbered again until it's unique
+        while (!entries.add(entry(value, sequence.getAndIncrement()))) {
+            Thread.onSpinWait();
+        }
+        size.increment();
+    }
+
+    /**
+     * Get the least value of the heap without removing it
+     * @return the least value
+     * @throws NoSuchElementException if the heap is empty
+     */
+    @Override
+    public int peek(){
+        return (int) (entries.first() >> 32);
+    }
+
+    /**
+     * Remove the least value from the heap
+     * @return the removed value
+     * @throws NoSuchElementException if the heap is empty
+     */
+    @Override
+    public int poll(){
+        Long first = entries.pollFirst();
+        if (first == null) {
+            throw new NoSuchElementException("the heap is empty");
+        }
+        size.decrement();
+        return (int) (first >> 32);
+    }
+
+    /**
+     * Remove one occurrence of the value from the heap
+     * @param value the value by which to search and delete the entry
+     * @return the boolean value indicating whether the value was removed
+     */
+    public boolean remove(int value){
+        long last = entry(value, -1);
+        while (true) {
+            // the entries of the value go one after another
+            Long found = entries.ceiling(entry(value, 0));
+            if (found == null || found > last) {
+                return false;
+            }
+            if (entries.remove(found)) {
+                size.decrement();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Check if the heap contains the value
+     * @param value the value to search for
+     * @return the boolean value indicating whether the value is present
+     */
+    public boolean contains(int value){
+        Long found = entries.ceiling(entry(value, 0));
+        return found != null && found <= entry(value, -1);
+    }
+
+    /**
+     * Get the number of values in the heap, it's exact only if there are no concurrent changes
+     * @return the number of values
+     */
+    @Override
+    public int size(){
+        return size.intValue();
+    }
+
+    /**
+     * Check if the heap is empty
+     * @return the boolean value indicating whether the heap is empty
+     */
+    @Override
+    public boolean isEmpty(){
+        return entries.isEmpty();
+    }
+
+    /**
+     * Get the values of the heap in the ascending order, which is also a valid level order,
+     * the values changed concurrently may be missed
+     * @return the int array of all values
+     */
+    public int[] getValuesOfTheTree(){
+        return entries.stream().mapToInt(entry -> (int) (entry >> 32)).toArray();
+    }
+}
+
+/**
+ * The relaxed priority queue made of a number of independent heaps (shards), the values are
+ * added to a random shard and removed from the better one of two random shards, so the removed
+ * value is close to the least one, but the threads rarely compete for the same shard
+ * @author Masyukevich Nikita
+ * @version 1.0
+ * @see <a href="https://arxiv.org/abs/1411.1209">See more about this data structure</a>
+ */
+class MultiQueue {
+    /**
+     * The top of the empty shard
+     */
+    protected static final long EMPTY = Long.MAX_VALUE;
+
+    /**
+     * The shards of the queue
+     */
+    protected final Heap[] shards;
+
+    /**
+     * The locks of the shards
+     */
+    protected final ReentrantLock[] locks;
+
+    /**
+     * The least value of each shard or EMPTY, it's read without locking the shard
+     */
+    protected final AtomicLongArray tops;
+
+    /**
+     * The number of values in the queue
+     */
+    protected final LongAdder size = new LongAdder();
+
+    /**
+     * Specify if each thread adds the values to its own shard
+     */
+    protected volatile boolean affinity = false;
+
+    /**
+     * The counter used to assign the shards to the threads
+     */
+    protected final AtomicInteger nextHome = new AtomicInteger();
+
+    /**
+     * The shard assigned to the current thread
+     */
+    protected final ThreadLocal<Integer> home = ThreadLocal.withInitial(() -> nextHome.getAndIncrement());
+
+    /**
+     * Specify if the rank error of the removed values is measured
+     */
+    protected volatile boolean metrics = false;
+
+    /**
+     * The number of measured removals
+     */
+    protected final LongAdder measuredPolls = new LongAdder();
+
+    /**
+     * The total rank error of the measured removals
+     */
+    protected final LongAdder totalRankError = new LongAdder();
+
+    /**
+     * The largest rank error of the measured removals
+     */
+    protected final AtomicLong maxRankError = new AtomicLong();
+
+    /**
+     * Constructor to initialize the queue with the specified number of shards
+     * @param shardCount the number of shards
+     */
+    public MultiQueue(int shardCount){
+        if (shardCount < 2) {
+            throw new IllegalArgumentException("the queue needs at least two shards");
+        }
+        shards = new Heap[shardCount];
+        locks = new ReentrantLock[shardCount];
+        tops = new AtomicLongArray(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Heap();
+            locks[i] = new ReentrantLock();
+            tops.set(i, EMPTY);
         }
     }
 
     /**
-     * Get the deepest right-most leaf node in the tree
-     * @param root the root node
-     * @return the found node
+     * Default constructor, which makes two shards per processor
      */
-    protected Node getDeepestRightLeafNode(Node root) {
-        if (root == null)
-            return null;
+    public MultiQueue(){
+        this(Math.max(2, 2 * Runtime.getRuntime().availableProcessors()));
+    }
 
-        // create a queue for level order traversal
-        Queue<Node> q = new LinkedList<>();
-        q.add(root);
+    /**
+     * Set if each thread adds the values to its own shard, this keeps the shard
+     * in the cache of the thread, but the values of the slow threads stay longer
+     * @param affinity specify if the shard affinity is used
+     */
+    public void setAffinity(boolean affinity){
+        this.affinity = affinity;
+    }
 
-        // the resulting node
-        Node result = root;
+    /**
+     * Set if the rank error of the removed values is measured, the measuring
+     * reads the tops of all the shards on each removal
+     * @param metrics specify if the rank error is measured
+     */
+    public void setMetricsEnabled(boolean metrics){
+        this.metrics = metrics;
+    }
 
-        // traverse until the queue is empty
-        while (!q.isEmpty()) {
-            int size = q.size();
-            for (int i = 0; i < size; i++) {
-                Node node = q.remove();
+    /**
+     * Add the value to the queue
+     * @param value the value to be added
+     */
+    public void offer(int value){
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int shard = affinity ? home.get() % shards.length : random.nextInt(shards.length);
 
-                if (node.left != null) {
-                    q.add(node.left);
+        // go to another random shard while the chosen one is busy
+        while (!locks[shard].tryLock()) {
+            shard = random.nextInt(shards.length);
+        }
+        try {
+            shards[shard].offer(value);
+            tops.set(shard, shards[shard].peek());
+        } finally {
+            locks[shard].unlock();
+        }
+        size.increment();
+    }
+
+    /**
+     * Remove the value, which is close to the least value of the queue
+     * @return the removed value
+     * @throws NoSuchElementException if the queue is empty
+     */
+    public int poll(){
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (true) {
+            // take the better one of two random shards
+            int first = affinity ? home.get() % shards.length : random.nextInt(shards.length);
+            int second = random.nextInt(shards.length);
+            int shard = tops.get(second) < tops.get(first) ? second : first;
+
+            if (tops.get(shard) == EMPTY) {
+                shard = findNonEmpty();
+                if (shard < 0) {
+                    throw new NoSuchElementException("the queue is empty");
                 }
+            }
 
-                // since we go level by level, the last
-                // stored right leaf node is the deepest one
-                if (node.right != null) {
-                    q.add(node.right);
+            if (!locks[shard].tryLock()) {
+                continue;
+            }
+            try {
+                Heap heap = shards[shard];
+                // the shard could be emptied by another thread
+                if (heap.size() == 0) {
+                    continue;
                 }
-                if (i == size - 1) {
-                    result = node;
+                int value = heap.poll();
+                tops.set(shard, heap.size() == 0 ? EMPTY : heap.peek());
+                size.decrement();
+                if (metrics) {
+                    measure(value);
                 }
+                return value;
+            } finally {
+                locks[shard].unlock();
             }
         }
-        return result;
     }
 
     /**
-     * Used to print the full binary tree
+     * Find any shard, which is not empty
+     * @return the shard or -1 if all the shards are empty
      */
-    public void renderTree(){
-        root.print();
+    protected int findNonEmpty(){
+        int start = ThreadLocalRandom.current().nextInt(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            int shard = (start + i) % shards.length;
+            if (tops.get(shard) != EMPTY) {
+                return shard;
+            }
+        }
+        return -1;
     }
 
     /**
-     * Used to print items of the tree in level order
+     * Used to measure the rank error of the removed value, which is the number
+     * of the shards with the top less than the removed value
+     * @param value the removed value
      */
-    public void printLevelOrder() {
-        if (root == null) {
-            return;
+    protected void measure(int value){
+        long error = 0;
+        for (int i = 0; i < shards.length; i++) {
+            if (tops.get(i) < value) {
+                error ++;
+            }
         }
+        measuredPolls.increment();
+        totalRankError.add(error);
+        maxRankError.accumulateAndGet(error, Math::max);
+    }
 
-        // traverse the tree with breadth first search,
-        // utilizing the queue
-        Queue<Node> nodes = new LinkedList<>();
-        nodes.add(root);
+    /**
+     * Get the average rank error of the measured removals
+     * @return the average number of the shard tops less than the removed value
+     */
+    public double getMeanRankError(){
+        long polls = measuredPolls.sum();
+        return polls == 0 ? 0 : (double) totalRankError.sum() / polls;
+    }
 
-        // define the first level
-        int level = 1;
+    /**
+     * Get the largest rank error of the measured removals
+     * @return the largest number of the shard tops less than the removed value
+     */
+    public long getMaxRankError(){
+        return maxRankError.get();
+    }
 
-        // while there are nodes in queue
-        while (!nodes.isEmpty()) {
+    /**
+     * Reset the measured rank error
+     */
+    public void resetMetrics(){
+        measuredPolls.reset();
+        totalRankError.reset();
+        maxRankError.set(0);
+    }
 
-            System.out.println("level: " + level);
+    /**
+     * Get the number of shards
+     * @return the number of shards
+     */
+    public int shardCount(){
+        return shards.length;
+    }
 
-            // get the number of nodes in the queue
-            int size = nodes.size();
+    /**
+     * Get the number of values in the queue, it's exact only if there are no concurrent changes
+     * @return the number of values
+     */
+    public int size(){
+        return size.intValue();
+    }
 
-            // iterate through the nodes in queue
-            for (int i = 0; i < size; i++){
+    /**
+     * Check if the queue is empty
+     * @return the boolean value indicating whether the queue is empty
+     */
+    public boolean isEmpty(){
+        return findNonEmpty() < 0;
+    }
+}
 
-                // take away the node
-                Node current = nodes.remove();
+/**
+ * The heap stored in the memory-mapped file instead of the Java heap, so the number of values
+ * is limited by the disk rather than by the heap size, and the garbage collector never sees them,
+ * the file keeps the header (the magic number, the version and the size of the heap) followed by the values
+ * in level order, the heap can't be used after it's closed
+ * @author Masyukevich Nikita
+ * @version 1.0
+ * @see <a href="https://en.wikipedia.org/wiki/Memory-mapped_file">See more about the storage</a>
+ */
+class MappedHeap implements Closeable {
+    /**
+     * The first bytes of the storage file
+     */
+    protected static final int MAGIC = 0x4C364D48;
 
-                // if the node has children, add then to the queue
-                if (current.left != null) {
-                    nodes.add(current.left);
-                }
+    /**
+     * The version of the storage format
+     */
+    protected static final int VERSION = 1;
 
-                if (current.right != null) {
-                    nodes.add(current.right);
-                }
+    /**
+     * The number of bytes before the values: the magic number, the version and the size of the heap
+     */
+    protected static final int HEADER = 16;
 
-                // print the node's value
-                System.out.print(" " + current.value);
-            }
-            System.out.println();
+    /**
+     * The position of the size of the heap in the header
+     */
+    protected static final int SIZE_OFFSET = 8;
 
-            // increment the level counter
-            level ++;
-        }
-    }
+    /**
+     * The default number of bytes mapped at once, as a power of two
+     */
+    protected static final int DEFAULT_CHUNK_SHIFT = 30;
 
     /**
-     * Used to properly create new nodes
-     * @param value the value of a new node
-     * @return the created node
+     * The number of bytes mapped for the new or small heap, as a power of two
      */
-    protected Node createNode(int value){
-        Node node = new Node(value);
+    protected static final int INITIAL_CHUNK_SHIFT = 12;
 
-        // increment the size of the tree
-        size ++;
-        return node;
-    }
+    /**
+     * The file channel of the storage
+     */
+    protected final FileChannel channel;
 
     /**
-     * Used to finding the max depth of the tree
-     * @param node the root node
-     * @return number - the max depth of the tree
+     * The mapped parts of the file, each of them has the same length
      */
-    protected int maxDepth(Node node) {
-        if (node == null)
-            return -1;
-        else {
-            // compute the depth of each subtree
-            int lDepth = maxDepth(node.left);
-            int rDepth = maxDepth(node.right);
+    protected MappedByteBuffer[] chunks = new MappedByteBuffer[0];
 
-            // use the larger one
-            if (lDepth > rDepth)
-                return (lDepth + 1);
-            else
-                return (rDepth + 1);
-        }
-    }
+    /**
+     * The length of each mapped part as a power of two, it grows
+     * while the whole file fits the single part
+     */
+    protected int chunkShift;
 
     /**
-     * Public method for finding the tree height
-     * @return number - the height of the tree
+     * The largest length of the mapped part as a power of two
      */
-    public int treeHeight(){
-        return maxDepth(root) + 1;
-    }
+    protected final int maxChunkShift;
 
     /**
-     * Insert the node on a specified level to the specified inter-level position
-     * @param value the value of the node
-     * @param level the level in the tree, where node should be inserted
-     * @param interLevelIndex the index inside the level, where node should be inserted
+     * The number of values in the heap
      */
-    public void insertNode(int value, int level, int interLevelIndex){
+    protected long size;
 
-        // find the tree height
-        int treeHeight = treeHeight();
+    /**
+     * Constructor to open the heap stored in the file, the file is created if it doesn't exist
+     * @param file the file of the storage
+     * @throws IOException if the file can't be opened or mapped, or it's not the heap storage
+     */
+    public MappedHeap(Path file) throws IOException {
+        this(file, DEFAULT_CHUNK_SHIFT);
+    }
 
-        // the case when attempting to add the node to the root of the
-        // empty tree
-        if (treeHeight == 0 && level == 1 && interLevelIndex == 1){
-            pushNode(value);
-            return;
+    /**
+     * Constructor to open the heap stored in the file with the specified length of the mapped parts
+     * @param file the file of the storage
+     * @param chunkShift the number of bytes mapped at once, as a power of two
+     * @throws IOException if the file can't be opened or mapped, or it's not the heap storage
+     */
+    protected MappedHeap(Path file, int chunkShift) throws IOException {
+        if (chunkShift < 4 || chunkShift > 30) {
+            throw new IllegalArgumentException("the chunk must be from 16 bytes to 1 GB");
         }
-
-        // if the specified level is less than 1 or
-        // is greater than the total number of level + 1, then
-        // the node can't be inserted
-        if (level > treeHeight+1 || level <= 0){
-            System.out.println("cannot insert, level is out of range");
-            return;
+        this.maxChunkShift = chunkShift;
+        this.chunkShift = Math.min(INITIAL_CHUNK_SHIFT, chunkShift);
+        channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            open();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
         }
+    }
 
-        // if the inter-level position is less than 1 or
-        // greater than the max possible position on the specified
-        // level, the node can't be inserted
-        if (interLevelIndex > Math.pow(2, level-1) ||
-                interLevelIndex <=0){
-            System.out.println("can't insert, index is out of range");
+    /**
+     * Used to check the header of the existing file and map its values, or to write the header to the new file,
+     * the header is read before the mapping, since the mapping makes the file longer
+     * @throws IOException if the file can't be read or mapped, or it's not the heap storage
+     */
+    protected void open() throws IOException {
+        long length = channel.size();
+        if (length == 0) {
+            ensureCapacity(0);
+            chunks[0].putInt(0, MAGIC);
+            chunks[0].putInt(4, VERSION);
+            setSize(0);
             return;
         }
 
-        // if the specified level is 1 level bellow the last one,
-        // and the inner-level position is not 1, then the node can't
-        // be added because it would make the tree incomplete
-        if (level == treeHeight+1 && interLevelIndex > 1){
-            System.out.println("can't insert due to completeness constraint");
-            return;
+        ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+        while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+            // read the whole header
+        }
+        header.flip();
+        if (header.remaining() < HEADER || header.getInt() != MAGIC) {
+            throw new IOException("the file is not a heap storage");
         }
+        if (header.getInt() != VERSION) {
+            throw new IOException("unsupported version of the heap storage");
+        }
+        long stored = header.getLong();
+        if (stored < 0 || stored > (length - HEADER) >>> 2) {
+            throw new IOException("the heap storage is truncated");
+        }
+        ensureCapacity(stored);
+        size = stored;
+    }
 
-        // traverse the tree using breadth first search utilizing
-        // the queue
-        Queue<Node> nodes = new LinkedList<>();
+    /**
+     * Used to check that the heap is not closed
+     * @throws IllegalStateException if the heap is closed
+     */
+    protected void ensureOpen(){
+        if (!channel.isOpen()) {
+            throw new IllegalStateException("the heap is closed");
+        }
+    }
 
-        // add the root node to the queue
-        nodes.add(root);
+    /**
+     * Used to map more parts of the file, so that it can hold the specified number of values
+     * @param capacity the required number of values
+     * @throws IOException if the file can't be mapped
+     */
+    protected void ensureCapacity(long capacity) throws IOException {
+        long bytes = HEADER + (capacity << 2);
 
-        // set the current level counter as 1
-        int currentLevel = 1;
+        // the single part is mapped anew at least twice as long, until it reaches the largest length,
+        // so the small heap doesn't make the large file
+        if (chunks.length <= 1 && chunkShift < maxChunkShift && bytes > (1L << chunkShift)) {
+            while (chunkShift < maxChunkShift && bytes > (1L << chunkShift)) {
+                chunkShift ++;
+            }
+            chunks = new MappedByteBuffer[0];
+        }
+        int required = (int) ((bytes + (1L << chunkShift) - 1) >>> chunkShift);
+        if (required <= chunks.length) {
+            return;
+        }
 
-        // while the current level is less than specified level
-        while (currentLevel < level) {
+        MappedByteBuffer[] grown = Arrays.copyOf(chunks, required);
+        for (int i = chunks.length; i < required; i++) {
+            // mapping beyond the end of the file makes the file longer
+            grown[i] = channel.map(FileChannel.MapMode.READ_WRITE, (long) i << chunkShift, 1L << chunkShift);
+            grown[i].order(ByteOrder.LITTLE_ENDIAN);
+        }
+        chunks = grown;
+    }
 
-            // get the size of the queue
-            int size = nodes.size();
+    /**
+     * Get the value at the position
+     * @param index the level-order position
+     * @return the value
+     */
+    protected int get(long index){
+        // the values are aligned, so none of them crosses the end of the part
+        long offset = HEADER + (index << 2);
+        return chunks[(int) (offset >>> chunkShift)].getInt((int) (offset & ((1L << chunkShift) - 1)));
+    }
 
-            // se the 'number of nodes on the next level' counter as 0
-            int numberOfNodesOnTheNextLevel = 0;
+    /**
+     * Set the value at the position
+     * @param index the level-order position
+     * @param value the value
+     */
+    protected void set(long index, int value){
+        long offset = HEADER + (index << 2);
+        chunks[(int) (offset >>> chunkShift)].putInt((int) (offset & ((1L << chunkShift) - 1)), value);
+    }
 
-            // iterate through the nodes in queue
-            for (int i = 0; i < size; i++){
+    /**
+     * Used to change the size of the heap and keep it in the file
+     * @param size the new size
+     */
+    protected void setSize(long size){
+        this.size = size;
+        chunks[0].putLong(SIZE_OFFSET, size);
+    }
 
-                // take away the node from the queue
-                Node current = nodes.remove();
+    /**
+     * Move the value up from the specified position until its parent is not greater
+     * @param index the position of the hole to start from
+     * @param value the value to be placed
+     */
+    protected void siftUp(long index, int value){
+        while (index > 0) {
+            long parent = (index - 1) >>> 1;
+            int parentValue = get(parent);
+            if (parentValue <= value) {
+                break;
+            }
+            // move the parent down into the hole
+            set(index, parentValue);
+            index = parent;
+        }
+        set(index, value);
+    }
 
-                // if the current node has children add them
-                // to the queue and increment the counter of those
-                if (current.left != null) {
-                    nodes.add(current.left);
-                    numberOfNodesOnTheNextLevel ++;
-                }
-                if (current.right != null) {
-                    nodes.add(current.right);
-                    numberOfNodesOnTheNextLevel ++;
-                }
+    /**
+     * Move the value down from the specified position until its children are not less
+     * @param index the position of the hole to start from
+     * @param value the value to be placed
+     */
+    protected void siftDown(long index, int value){
+        // the nodes from this position on have no children
+        long half = size >>> 1;
+        while (index < half) {
+            long child = 2 * index + 1;
+            int childValue = get(child);
 
-                // the case when it's specified to add the node
-                // just bellow the last level
-                if (currentLevel == treeHeight){
-                    current.left = createNode(value);
-                    return;
+            // take the smaller one of the children
+            if (child + 1 < size) {
+                int rightValue = get(child + 1);
+                if (rightValue < childValue) {
+                    child ++;
+                    childValue = rightValue;
                 }
+            }
+            if (value <= childValue) {
+                break;
+            }
+            // move the child up into the hole
+            set(index, childValue);
+            index = child;
+        }
+        set(index, value);
+    }
 
-                // the case when it's specified to add the node
-                // just bellow the current level
-                else if (level - currentLevel == 1) {
-
-                    // if the specified inter-level position is less or
-                    // equals than the number of child notes on the next level,
-                    // it means that the specified position is already taken,
-                    // and the node cannot be inserted
-                    if (interLevelIndex <= numberOfNodesOnTheNextLevel){
-                        System.out.println("cannot insert, specified position is taken");
-                        return;
-                    }
+    /**
+     * Add the value to the heap
+     * @param value the value to be added
+     * @throws IOException if the file can't be mapped
+     * @throws IllegalStateException if the heap is closed
+     */
+    public void offer(int value) throws IOException {
+        ensureOpen();
+        ensureCapacity(size + 1);
+        long index = size;
+        setSize(size + 1);
+        siftUp(index, value);
+    }
 
-                    // if the specified position is just above the number of children
-                    // on the next level, add the node to the current node:
-                    // to the left if empty
-                    // to the right if empty
-                    // or if both children are present, go to the next node on the
-                    // current level
-                    if (interLevelIndex - numberOfNodesOnTheNextLevel == 1){
-                        if (current.left == null){
-                            current.left = createNode(value);
-
-                        } else if (current.right == null){
-                            current.right = createNode(value);
-
-                        } else {
-                            continue;
-                        }
-                        return;
-                    }
-                }
+    /**
+     * Add all the values to the heap, the large number of values is added
+     * at once and then the whole heap is built anew
+     * @param values the values to be added
+     * @throws IOException if the file can't be mapped
+     * @throws IllegalStateException if the heap is closed
+     */
+    public void pushAll(int[] values) throws IOException {
+        ensureOpen();
+        ensureCapacity(size + values.length);
+        long total = size + values.length;
+        if (!Heap.heapifyIsCheaper(size, values.length)) {
+            for (int value: values) {
+                offer(value);
             }
+            return;
+        }
 
-            // if the case is to add a node to the next level from the
-            // current one, and the index is more than 1 further
-            // than number of nodes on that level, cannot insert,
-            // as it would violate the completeness constraint
-            if ((level - currentLevel == 1) &&(interLevelIndex - numberOfNodesOnTheNextLevel > 1)){
-                System.out.println("cannot insert due to completeness constraint");
-                return;
-            }
+        for (int i = 0; i < values.length; i++) {
+            set(size + i, values[i]);
+        }
+        setSize(total);
+        heapify();
+    }
 
-            // increment the level counter
-            currentLevel ++;
+    /**
+     * Put the values in the heap order, going from the last parent to the root
+     * @throws IllegalStateException if the heap is closed
+     */
+    public void heapify(){
+        ensureOpen();
+        for (long i = (size >>> 1) - 1; i >= 0; i--) {
+            siftDown(i, get(i));
+        }
+    }
+
+    /**
+     * Get the least value of the heap without removing it
+     * @return the value at the root
+     * @throws NoSuchElementException if the heap is empty
+     * @throws IllegalStateException if the heap is closed
+     */
+    public int peek(){
+        ensureOpen();
+        if (size == 0) {
+            throw new NoSuchElementException("the heap is empty");
         }
+        return get(0);
+    }
 
-        // in other cases, if the node have not been inserted,
-        // give a message
-        System.out.println("couldn't insert");
-        return;
+    /**
+     * Remove the least value from the heap
+     * @return the removed value
+     * @throws NoSuchElementException if the heap is empty
+     * @throws IllegalStateException if the heap is closed
+     */
+    public int poll(){
+        ensureOpen();
+        if (size == 0) {
+            throw new NoSuchElementException("the heap is empty");
+        }
+        int top = get(0);
+        int last = get(size - 1);
+        setSize(size - 1);
+        if (size > 0) {
+            siftDown(0, last);
+        }
+        return top;
     }
 
     /**
-     * Add the node to the end of the tree, retaining the completeness
+     * Replace the least value of the heap with the specified one
      * @param value the value to be added
+     * @return the removed value
+     * @throws NoSuchElementException if the heap is empty
+     * @throws IllegalStateException if the heap is closed
      */
-    public void pushNode(int value) {
-        // if the tree is empty create a new node
-        if (root == null) {
-            root = createNode(value);
-            return;
+    public int replaceTop(int value){
+        ensureOpen();
+        if (size == 0) {
+            throw new NoSuchElementException("the heap is empty");
         }
+        int top = get(0);
+        siftDown(0, value);
+        return top;
+    }
 
-        // traverse the tree using breadth first search
-        // utilizing the queue
-        Queue<Node> nodes = new LinkedList<>();
-        // add the root node to the queue
-        nodes.add(root);
+    /**
+     * Get the number of values in the heap
+     * @return the number of values
+     */
+    public long size(){
+        return size;
+    }
 
-        // the inter-tree index
-        int i = 1;
+    /**
+     * Check if the heap is empty
+     * @return the boolean value indicating whether the heap is empty
+     */
+    public boolean isEmpty(){
+        return size == 0;
+    }
 
-        // the calculated position to add
-        int position = (int) (size + 1) / 2;
+    /**
+     * Write the changed values to the file
+     * @throws IllegalStateException if the heap is closed
+     */
+    public void flush(){
+        ensureOpen();
+        for (MappedByteBuffer chunk: chunks) {
+            chunk.force();
+        }
+    }
 
-        // while there are nodes in the queue
-        while (!nodes.isEmpty()) {
+    /**
+     * Write the changed values to the file and close it, the mapped memory
+     * is released when the heap is collected
+     * @throws IOException if the file can't be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (!channel.isOpen()) {
+            return;
+        }
+        flush();
+        chunks = new MappedByteBuffer[0];
+        channel.close();
+    }
+}
 
-            // take away the node from the queue
-            Node node = nodes.remove();
+/**
+ * The opt-in metrics of the tree operations: the number of calls, the number of visited nodes,
+ * the latency histogram of each operation and the number of rebuilds of the storage, the metrics are
+ * shared by all trees, and while they are disabled each operation only checks that they are null,
+ * the metrics can be read through JMX and each operation is recorded as the JFR event
+ * @author Masyukevich Nikita
+ * @version 1.0
+ * @see <a href="https://hdrhistogram.github.io/HdrHistogram/">See more about the histogram</a>
+ */
+class TreeMetrics implements DynamicMBean {
+    /**
+     * The measured operations
+     */
+    public enum Operation {
+        PUSH_NODE, INSERT_NODE, REMOVE, RESTORE, OFFER, POLL, REPLACE_TOP, MELD
+    }
 
-            // if the current node has the position of calculated,
-            // add the node
-            if (i == position){
-                if (node.left == null){
-                    node.left = createNode(value);
-                } else if (node.right == null){
-                    node.right = createNode(value);
-                }
-                else System.out.println("the tree is incomplete, cannot create node");
-                return;
-            }
+    /**
+     * The rebuilds of the whole storage
+     */
+    public enum Rebuild {
+        /**
+         * The level-order array is turned into the linked nodes
+         */
+        MATERIALIZE,
 
-            // add the child notes to queue
-            if (node.left != null) {
-                nodes.add(node.left);
-            }
+        /**
+         * The linked nodes are packed back into the level-order array
+         */
+        RESTORE_COMPLETENESS,
 
-            if (node.right != null) {
-                nodes.add(node.right);
-            }
+        /**
+         * The whole heap is built anew
+         */
+        HEAPIFY,
 
-            // increment the inter-tree index
-            i++;
-        }
+        /**
+         * The values marked as removed are taken away
+         */
+        COMPACT
     }
 
     /**
-     * Remove the node by value
-     * @param value the value by which to search and delete the node
+     * The name of the metrics in JMX
      */
-    public void remove(int value) {
-        if (root == null) {
-            System.out.println("cannot remove, the tree is empty");
-            return;
-        }
+    public static final String OBJECT_NAME = "com.company:type=TreeMetrics";
 
-        // if the root node need to be removed, find the right-most
-        // the deepest node, pop it and replace the root node with it
-        if (root.value == value){
-            Node toReplace = getDeepestRightLeafNode(root);
-            disconnectNode(toReplace);
-            toReplace.left = root.left;
-            toReplace.right = root.right;
-            root = toReplace;
-            return;
-        }
+    /**
+     * The number of sub-buckets of each power of two in the histogram, the recorded
+     * latency differs from the real one by at most 1/16
+     */
+    protected static final int SUB_BUCKETS = 16;
 
-        // traverse the tree using breadth first search
-        // utilizing the queue
-        Queue<Node> nodes = new LinkedList<>();
-        // add the root node to the queue
-        nodes.add(root);
+    /**
+     * The number of buckets of the histogram, enough for any long value
+     */
+    protected static final int BUCKETS = (64 - 3) * SUB_BUCKETS;
 
-        // while there are nodes in the queue
-        while (!nodes.isEmpty()) {
+    /**
+     * The enabled metrics or null, the field is not volatile, so that the check of the disabled metrics
+     * is a plain read in each operation, the running threads may start or stop recording a little later,
+     * the fields of the metrics are final, so they are seen initialized anyway
+     */
+    protected static TreeMetrics active;
 
-            // take away the node from the queue
-            Node node = nodes.remove();
+    /**
+     * The number of calls of each operation
+     */
+    protected final LongAdder[] counts = adders(Operation.values().length);
 
-            // if the left child node is the one to be removed,
-            // consider 3 cases:
-            if (node.left.value == value) {
-                // 1: it has no children, then remove the reference of it from
-                // the parent node
-                if (node.left.left== null && node.left.right == null){
-                    node.left = null;
-                    size --;
-                // 2: it has 1 children,  then replace the node with the child
-                // node
-                } else if (node.left.left == null && node.left.right != null){
-                    node.left = node.left.right;
-                    size --;
-                } else if (node.left.right == null && node.left.left != null){
-                    node.left = node.left.left;
-                    size --;
-                // 3: it has 2 children, then find the deepest right-most node,
-                // pop it and replace the node to be deleted with it
-                } else {
-                    Node toReplace = getDeepestRightLeafNode(node.left);
-                    disconnectNode(toReplace);
-                    toReplace.left = node.left.left;
-                    toReplace.right = node.left.right;
-                    node.left = toReplace;
-                }
-                return;
-            }
-            if (node.right.value == value) {
-                if (node.right.left== null && node.right.right == null){
-                    node.right = null;
-                    size --;
-                } else if (node.right.left == null && node.right.right != null){
-                    node.right = node.right.right;
-                    size --;
-                } else if (node.right.right == null && node.right.left != null){
-                    node.right = node.right.left;
-                    size --;
-                } else {
-                    Node toReplace = getDeepestRightLeafNode(node.right);
-                    disconnectNode(toReplace);
-                    toReplace.left = node.right.left;
-                    toReplace.right = node.right.right;
-                    node.right = toReplace;
-                }
-                return;
-            }
+    /**
+     * The number of nodes visited by each operation
+     */
+    protected final LongAdder[] visited = adders(Operation.values().length);
 
-            // add the child notes to queue
-            if (node.left != null) {
-                nodes.add(node.left);
-            }
+    /**
+     * The number of each rebuild
+     */
+    protected final LongAdder[] rebuilds = adders(Rebuild.values().length);
 
-            if (node.right != null) {
-                nodes.add(node.right);
-            }
-        }
+    /**
+     * The latency histogram of each operation in nanoseconds
+     */
+    protected final AtomicLongArray[] latencies = new AtomicLongArray[Operation.values().length];
 
+    /**
+     * Constructor to initialize the empty metrics
+     */
+    protected TreeMetrics(){
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new AtomicLongArray(BUCKETS);
+        }
     }
 
     /**
-     * Check if the tree is complete
-     * @param root the root node
-     * @param index the index of the node
-     * @param numberNodes the size of the tree
-     * @return the boolean value indicating whether the tree is complete
+     * Used to create the counters
+     * @param count the number of counters
+     * @return the array of counters
      */
-    private boolean checkComplete(Node root, int index, int numberNodes) {
-        // Check if the tree is empty
-        if (root == null)
-            return true;
+    protected static LongAdder[] adders(int count){
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
 
-        // if the index of the node if greater than the number of nodes in the
-        // tree then this tree is incomplete
-        if (index >= numberNodes)
-            return false;
+    /**
+     * Start collecting the metrics of all trees
+     * @return the enabled metrics
+     */
+    public static synchronized TreeMetrics enable(){
+        if (active == null) {
+            active = new TreeMetrics();
+        }
+        return active;
+    }
 
-        // check for the child nodes
-        return (checkComplete(root.left, 2 * index + 1, numberNodes)
-                && checkComplete(root.right, 2 * index + 2, numberNodes));
+    /**
+     * Stop collecting the metrics, the collected ones are dropped
+     */
+    public static synchronized void disable(){
+        active = null;
     }
 
     /**
-     * Public method for checking completeness
-     * @return the boolean value indicating whether the tree is complete
+     * Get the enabled metrics
+     * @return the enabled metrics or null if they are disabled
      */
-    public boolean isCompleteTree(){
-        return checkComplete(root, 0, size);
+    public static TreeMetrics get(){
+        return active;
     }
 
     /**
-     * Get the size of the tree or any sub-tree
-     * @param node the root node
-     * @return the number of nodes in the tree
+     * Used to count the rebuild if the metrics are enabled
+     * @param rebuild the kind of the rebuild
      */
-    protected int getSize(Node node) {
-        if (node == null) return(0);
-        else {
-            return(getSize(node.left) + 1 + getSize(node.right));
+    static void rebuilt(Rebuild rebuild){
+        TreeMetrics metrics = active;
+        if (metrics != null) {
+            metrics.rebuilds[rebuild.ordinal()].increment();
         }
     }
 
     /**
-     * Public method for getting size of the full tree
-     * @return the number of nodes in the tree
+     * Used to record the finished operation
+     * @param operation the operation
+     * @param nanos the latency of the operation
+     * @param nodes the number of nodes visited by the operation
      */
-    public int size(){
-        return getSize(root);
+    void record(Operation operation, long nanos, long nodes){
+        counts[operation.ordinal()].increment();
+        visited[operation.ordinal()].add(nodes);
+        latencies[operation.ordinal()].incrementAndGet(bucket(Math.max(nanos, 0)));
     }
 
     /**
-     * Get the node values of the tree
-     * @return the int array of all values
+     * Used to get the bucket of the value, the values less than 16 have their own buckets,
+     * the greater ones are split into 16 buckets for each power of two
+     * @param value the value
+     * @return the index of the bucket
      */
-    protected int[] getValuesOfTheTree(){
-        if (root == null) {
-            return new int[]{};
+    protected static int bucket(long value){
+        if (value < SUB_BUCKETS) {
+            return (int) value;
         }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - 4)) & (SUB_BUCKETS - 1);
+        return (exponent - 3) * SUB_BUCKETS + sub;
+    }
 
-        // traverse through the tree
-        Queue<Node> nodes = new LinkedList<>();
-        nodes.add(root);
+    /**
+     * Used to get the greatest value of the bucket
+     * @param bucket the index of the bucket
+     * @return the greatest value, which falls into the bucket
+     */
+    protected static long highestOf(int bucket){
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + 3;
+        long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - 4);
+        return lowest + (1L << (exponent - 4)) - 1;
+    }
 
-        // collect the values of the tree level by level
-        int[] values= new int [this.size];
-        int i = 0;
-        while (!nodes.isEmpty()) {
+    /**
+     * Get the number of calls of the operation
+     * @param operation the operation
+     * @return the number of calls
+     */
+    public long count(Operation operation){
+        return counts[operation.ordinal()].sum();
+    }
 
-            Node node = nodes.remove();
-            values[i] =  (node.value);
+    /**
+     * Get the number of nodes visited by all calls of the operation
+     * @param operation the operation
+     * @return the number of visited nodes
+     */
+    public long nodesVisited(Operation operation){
+        return visited[operation.ordinal()].sum();
+    }
 
-            if (node.left != null) {
-                nodes.add(node.left);
+    /**
+     * Get the number of rebuilds
+     * @param rebuild the kind of the rebuild
+     * @return the number of rebuilds
+     */
+    public long rebuilds(Rebuild rebuild){
+        return rebuilds[rebuild.ordinal()].sum();
+    }
+
+    /**
+     * Get the latency, which the specified share of calls of the operation doesn't exceed
+     * @param operation the operation
+     * @param percentile the share of calls from 0 to 100, for example 99.9
+     * @return the latency in nanoseconds or 0 if there were no calls
+     */
+    public long percentile(Operation operation, double percentile){
+        AtomicLongArray histogram = latencies[operation.ordinal()];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += histogram.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(total * Math.min(percentile, 100) / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += histogram.get(i);
+            if (seen >= rank) {
+                return highestOf(i);
             }
+        }
+        return highestOf(BUCKETS - 1);
+    }
 
-            if (node.right != null) {
-                nodes.add(node.right);
+    /**
+     * Reset all metrics to zero
+     */
+    public void reset(){
+        for (int i = 0; i < counts.length; i++) {
+            counts[i].reset();
+            visited[i].reset();
+            for (int j = 0; j < BUCKETS; j++) {
+                latencies[i].set(j, 0);
             }
-            i++;
         }
-        return values;
+        for (LongAdder rebuild: rebuilds) {
+            rebuild.reset();
+        }
     }
 
     /**
-     * Restores the state of being a complete tree
+     * Register the metrics in the platform MBean server
+     * @throws JMException if the metrics can't be registered
      */
-    protected void restoreCompleteness(){
+    public void register() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        if (server.isRegistered(name)) {
+            server.unregisterMBean(name);
+        }
+        server.registerMBean(this, name);
+    }
 
-        if (root == null) {
-            return;
+    /**
+     * Get the value of the JMX attribute, the attributes are named after the operation or the rebuild,
+     * for example POLL.count, POLL.nodesVisited, POLL.p99, HEAPIFY.rebuilds
+     * @param attribute the name of the attribute
+     * @return the value of the attribute
+     * @throws AttributeNotFoundException if there is no such attribute
+     */
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        int dot = attribute.indexOf('.');
+        if (dot > 0) {
+            String kind = attribute.substring(0, dot);
+            String metric = attribute.substring(dot + 1);
+            try {
+                if (metric.equals("rebuilds")) {
+                    return rebuilds(Rebuild.valueOf(kind));
+                }
+                Operation operation = Operation.valueOf(kind);
+                switch (metric) {
+                    case "count":
+                        return count(operation);
+                    case "nodesVisited":
+                        return nodesVisited(operation);
+                    case "p50":
+                        return percentile(operation, 50);
+                    case "p99":
+                        return percentile(operation, 99);
+                    case "p999":
+                        return percentile(operation, 99.9);
+                    case "max":
+                        return percentile(operation, 100);
+                    default:
+                        break;
+                }
+            } catch (IllegalArgumentException e) {
+                // the name of an unknown operation, reported below
+            }
+        }
+        throw new AttributeNotFoundException(attribute);
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        AttributeList list = new AttributeList();
+        for (String attribute: attributes) {
+            try {
+                list.add(new Attribute(attribute, getAttribute(attribute)));
+            } catch (AttributeNotFoundException e) {
+                // the unknown attributes are skipped
+            }
         }
+        return list;
+    }
 
-        int[] values = getValuesOfTheTree();
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("the metrics are read-only");
+    }
 
-        // replace the old tree with a new one, where each node is
-        // inserted properly
-        BinaryTree restored = new BinaryTree(values);
-        this.root = restored.root;
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
     }
 
-    /**
-     * Public method to restore the tree if it's incomplete
-     */
-    public void restore(){
-        if (!this.isCompleteTree()){
-            this.restoreCompleteness();
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        if (actionName.equals("reset") && (params == null || params.length == 0)) {
+            reset();
+            return null;
+        }
+        throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        String[] metrics = {"count", "nodesVisited", "p50", "p99", "p999", "max"};
+        MBeanAttributeInfo[] attributes = new MBeanAttributeInfo[Operation.values().length * metrics.length
+                + Rebuild.values().length];
+        int i = 0;
+        for (Operation operation: Operation.values()) {
+            for (String metric: metrics) {
+                attributes[i++] = new MBeanAttributeInfo(operation + "." + metric, "long",
+                        metric.startsWith("p") || metric.equals("max") ? "the latency in nanoseconds" : "the total",
+                        true, false, false);
+            }
         }
+        for (Rebuild rebuild: Rebuild.values()) {
+            attributes[i++] = new MBeanAttributeInfo(rebuild + ".rebuilds", "long", "the number of rebuilds",
+                    true, false, false);
+        }
+        MBeanOperationInfo[] operations = {
+            new MBeanOperationInfo("reset", "reset all metrics to zero", new MBeanParameterInfo[0],
+                    "void", MBeanOperationInfo.ACTION)
+        };
+        return new MBeanInfo(getClass().getName(), "the metrics of the tree operations", attributes,
+                null, operations, null);
     }
 }
 
 /**
- * The heap data structure
- * @author Masyukevych Nikita
+ * The JFR event of the tree operation, which is committed while the metrics are enabled
+ * @author Masyukevich Nikita
  * @version 1.0
- * @see <a href="https://en.wikipedia.org/wiki/Heap_(data_structure)">See more about this data structure</a>
+ * @see <a href="https://docs.oracle.com/en/java/javase/11/docs/api/jdk.jfr/jdk/jfr/Event.html">See more about the events</a>
  */
-class Heap extends BinaryTree{
+@Name("com.company.TreeOperation")
+@Label("Tree Operation")
+@Category("Trees")
+class TreeOperationEvent extends Event {
     /**
-     * Constructor to initialize the heap with values
-     * @param values values to add to the heap
+     * The name of the operation
      */
-    public Heap(int[] values){
-        Arrays.sort(values);
-        for (int value: values){
-            this.pushNode(value);
-        }
-    }
-
-    // initialize the tree with the values
+    @Label("Operation")
+    String operation;
 
     /**
-     * Constructor to initialize the tree with the same values
-     * @param fillWith the value to add a number of times
-     * @param size the number of times to add the value
+     * The class of the tree
      */
-    public Heap(int fillWith, int size){
-        for (int i = 0; i < size; i++){
-            pushNode(fillWith);
-        }
-    }
+    @Label("Tree")
+    String tree;
 
     /**
-     * Default constructor
+     * The size of the tree after the operation
      */
-    public Heap (){
-    }
+    @Label("Size")
+    int size;
 
     /**
-     * Restore the heap
+     * The number of nodes visited by the operation
      */
-    public void restore() {
-
-        if (root == null) {
-            return;
-        }
-
-        int[] values = getValuesOfTheTree();
-
-        // replace the old tree with a new one, where each node is
-        // inserted properly
-        Heap restored = new Heap(values);
-        this.root = restored.root;
-    }
+    @Label("Nodes Visited")
+    long nodesVisited;
 }
 
 class Main{
@@ -0,0 +1,102 @@
+package com.company;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The checks of removeAll and batch against the same changes made one by one with pushNode and remove
+ */
+class BatchTest extends TreeTest {
+
+    @Test
+    void batchMatchesChangesOneByOne() {
+        Random random = new Random(3);
+        for (int round = 0; round < 400; round++) {
+            boolean heap = random.nextBoolean();
+            int[] values = random.ints(random.nextInt(100), 0, 20).toArray();
+            BinaryTree eager = heap ? new Heap(values) : new BinaryTree(values);
+            // the batch moves the last value into the gap of the removed one, as the indexed tree does
+            eager.enableIndex();
+            BinaryTree batched = heap ? new Heap(values) : new BinaryTree(values);
+            if (random.nextBoolean()) {
+                batched.enableIndex();
+            }
+
+            // small batches are replayed, large ones rebuild the storage
+            int count = random.nextBoolean() ? random.nextInt(6) : random.nextInt(300);
+            int[] changes = random.ints(count, 0, 20).toArray();
+            boolean[] removals = new boolean[count];
+            for (int i = 0; i < count; i++) {
+                removals[i] = random.nextInt(3) == 0;
+            }
+
+            for (int i = 0; i < count; i++) {
+                if (!removals[i]) {
+                    eager.pushNode(changes[i]);
+                } else if (eager.contains(changes[i])) {
+                    eager.remove(changes[i]);
+                }
+            }
+            batched.batch(mutator -> {
+                for (int i = 0; i < count; i++) {
+                    if (removals[i]) {
+                        mutator.remove(changes[i]);
+                    } else {
+                        mutator.push(changes[i]);
+                    }
+                }
+            });
+
+            assertTrue(batched.isCompleteTree());
+            assertArrayEquals(sorted(eager), sorted(batched));
+            if (!heap) {
+                assertArrayEquals(eager.getValuesOfTheTree(), batched.getValuesOfTheTree());
+            } else {
+                // the large batch builds the heap anew, so only the order of the values polled is the same
+                while (eager.size() > 0) {
+                    assertEquals(((Heap) eager).poll(), ((Heap) batched).poll());
+                }
+            }
+        }
+    }
+
+    @Test
+    void removeAllMatchesRemovalsOneByOne() {
+        Random random = new Random(4);
+        for (int round = 0; round < 400; round++) {
+            boolean heap = random.nextBoolean();
+            int[] values = random.ints(random.nextInt(100), 0, 20).toArray();
+            BinaryTree eager = heap ? new Heap(values) : new BinaryTree(values);
+            // the batch moves the last value into the gap of the removed one, as the indexed tree does
+            eager.enableIndex();
+            BinaryTree batched = heap ? new Heap(values) : new BinaryTree(values);
+
+            int[] removed = random.ints(random.nextBoolean() ? random.nextInt(4) : random.nextInt(100), 0, 20)
+                    .toArray();
+            for (int value: removed) {
+                if (eager.contains(value)) {
+                    eager.remove(value);
+                }
+            }
+            batched.removeAll(removed);
+
+            assertArrayEquals(sorted(eager), sorted(batched));
+            if (!heap) {
+                assertArrayEquals(eager.getValuesOfTheTree(), batched.getValuesOfTheTree());
+            }
+        }
+    }
+
+    @Test
+    void removeAllSkipsAbsentValuesSilently() {
+        BinaryTree tree = new BinaryTree(new int[]{1, 2, 3});
+        tree.removeAll(new int[]{4, 2, 5});
+
+        assertArrayEquals(new int[]{1, 3}, sorted(tree));
+        assertEquals("", output.toString());
+    }
+}
@@ -0,0 +1,110 @@
+package com.company;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The checks of the d-ary heap against PriorityQueue for each arity
+ */
+class DaryHeapTest {
+
+    static final int[] ARITIES = {2, 4, 8, 16};
+
+    @Test
+    void operationsMatchPriorityQueue() {
+        Random random = new Random(13);
+        for (int arity: ARITIES) {
+            for (int round = 0; round < 100; round++) {
+                int[] values = random.ints(random.nextInt(200), 0, 100).toArray();
+                DaryHeap heap = new DaryHeap(arity, values);
+                PriorityQueue<Integer> expected = new PriorityQueue<>();
+                for (int value: values) {
+                    expected.add(value);
+                }
+
+                for (int step = 0; step < 300; step++) {
+                    int value = random.nextInt(100);
+                    switch (random.nextInt(5)) {
+                        case 0:
+                            if (!expected.isEmpty()) {
+                                assertEquals((int) expected.poll(), heap.poll());
+                            }
+                            break;
+                        case 1:
+                            if (!expected.isEmpty()) {
+                                assertEquals((int) expected.poll(), heap.replaceTop(value));
+                                expected.add(value);
+                            }
+                            break;
+                        case 2:
+                            // both the small and the large number of values, which is heapified
+                            int count = random.nextInt(2) == 0 || heap.size() > 500 ? 3 : 2 * heap.size() + 1;
+                            int[] added = random.ints(count, 0, 100).toArray();
+                            heap.pushAll(added);
+                            for (int addedValue: added) {
+                                expected.add(addedValue);
+                            }
+                            break;
+                        default:
+                            heap.offer(value);
+                            expected.add(value);
+                    }
+                    assertEquals(expected.size(), heap.size());
+                    if (!expected.isEmpty()) {
+                        assertEquals((int) expected.peek(), heap.peek());
+                    }
+                }
+
+                while (!expected.isEmpty()) {
+                    assertEquals((int) expected.poll(), heap.poll());
+                }
+                assertTrue(heap.isEmpty());
+            }
+        }
+    }
+
+    @Test
+    void emptyHeapThrows() {
+        DaryHeap heap = new DaryHeap(4);
+        assertThrows(NoSuchElementException.class, heap::peek);
+        assertThrows(NoSuchElementException.class, heap::poll);
+        assertThrows(NoSuchElementException.class, () -> heap.replaceTop(1));
+        assertThrows(IllegalArgumentException.class, () -> new DaryHeap(3));
+    }
+
+    /**
+     * The sift down stops at the last parent, since the first child of the leaves of the large heap
+     * overflows to a negative index, which passed the check against the end of the heap,
+     * the heap of that size doesn't fit the test, so the bound is checked on the index math
+     */
+    @Test
+    void siftDownBoundHoldsForTheLargestHeap() {
+        for (int arity: ARITIES) {
+            DaryHeap heap = new DaryHeap(arity);
+            int end = Integer.MAX_VALUE;
+            int lastParent = heap.parent(end - 1);
+
+            // every parent has its children inside the heap
+            for (int index = lastParent; index > lastParent - 1000; index--) {
+                int child = heap.firstChild(index);
+                assertTrue(child > index && child < end);
+                assertEquals(index, heap.parent(child));
+            }
+
+            // the children of the leaves are past the end or overflow
+            boolean overflows = false;
+            for (int index = lastParent + 1; index < lastParent + 1000; index++) {
+                int child = heap.firstChild(index);
+                assertTrue(child >= end || child < 0);
+                overflows |= child < 0;
+            }
+            assertTrue(overflows);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.company;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.PriorityQueue;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The checks of the heap operations against PriorityQueue
+ */
+class HeapTest extends TreeTest {
+
+    @Test
+    void pushNodeKeepsTheHeapOrderOfTheLinkedHeap() {
+        Random random = new Random(1);
+        for (int round = 0; round < 500; round++) {
+            int[] values = random.ints(random.nextInt(20), 0, 50).toArray();
+            Heap heap = new Heap(values);
+            PriorityQueue<Integer> expected = new PriorityQueue<>();
+            for (int value: values) {
+                expected.add(value);
+            }
+
+            for (int step = 0; step < 6; step++) {
+                int level = 1 + random.nextInt(6);
+                int size = heap.size();
+                int value = random.nextInt(50);
+                heap.insertNode(value, level, 1 + random.nextInt(1 << (level - 1)));
+                if (heap.size() > size) {
+                    expected.add(value);
+                }
+
+                // the value is added even if the inserted node left the heap incomplete
+                value = random.nextInt(50);
+                heap.pushNode(value);
+                expected.add(value);
+                assertEquals(expected.size(), heap.size());
+            }
+
+            while (!expected.isEmpty()) {
+                assertEquals((int) expected.poll(), heap.poll());
+            }
+        }
+    }
+}
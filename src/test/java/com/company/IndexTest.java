@@ -0,0 +1,92 @@
+package com.company;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The checks of the indexed tree against the tree without the index
+ */
+class IndexTest extends TreeTest {
+
+    @Test
+    void removalKeepsTheTreeIndexed() {
+        Random random = new Random(9);
+        for (int round = 0; round < 200; round++) {
+            int[] values = random.ints(random.nextInt(80), 0, 25).toArray();
+            BinaryTree plain = new BinaryTree(values);
+            BinaryTree indexed = new BinaryTree(values);
+            indexed.enableIndex();
+
+            for (int step = 0; step < 100; step++) {
+                int value = random.nextInt(25);
+                if (random.nextInt(3) == 0) {
+                    plain.pushNode(value);
+                    indexed.pushNode(value);
+                } else if (plain.contains(value)) {
+                    plain.remove(value);
+                    indexed.remove(value);
+                    // the pushes need the complete tree
+                    plain.restore();
+                }
+
+                assertTrue(indexed.isCompleteTree());
+                assertNotNull(indexed.valueIndex);
+                assertEquals(plain.contains(value), indexed.contains(value));
+                // the indexed tree moves the last value into the gap, so only the values are the same
+                assertArrayEquals(sorted(plain), sorted(indexed));
+            }
+        }
+    }
+
+    @Test
+    void indexedRemovalMovesTheLastValueIntoTheGap() {
+        int[] values = {1, 2, 3, 4, 5, 6, 7};
+        BinaryTree plain = new BinaryTree(values);
+        BinaryTree indexed = new BinaryTree(values);
+        indexed.enableIndex();
+
+        plain.remove(2);
+        indexed.remove(2);
+
+        // the plain tree replaces the node by the last node of its sub-tree
+        assertArrayEquals(new int[] {1, 5, 3, 4, 6, 7}, plain.getValuesOfTheTree());
+        assertFalse(plain.isCompleteTree());
+        assertArrayEquals(new int[] {1, 7, 3, 4, 5, 6}, indexed.getValuesOfTheTree());
+        assertTrue(indexed.isCompleteTree());
+    }
+
+    @Test
+    void indexedHeapRemovesAnyOccurrence() {
+        Random random = new Random(10);
+        for (int round = 0; round < 200; round++) {
+            int[] values = random.ints(random.nextInt(80), 0, 10).toArray();
+            Heap plain = new Heap(values);
+            Heap indexed = new Heap(values);
+            indexed.enableIndex();
+
+            for (int step = 0; step < 50; step++) {
+                int value = random.nextInt(10);
+                if (plain.contains(value)) {
+                    plain.remove(value);
+                    indexed.remove(value);
+                }
+            }
+
+            int[] expected = plain.getValuesOfTheTree();
+            int[] actual = indexed.getValuesOfTheTree();
+            Arrays.sort(expected);
+            Arrays.sort(actual);
+            assertArrayEquals(expected, actual);
+            while (plain.size() > 0) {
+                assertEquals(plain.poll(), indexed.poll());
+            }
+        }
+    }
+}
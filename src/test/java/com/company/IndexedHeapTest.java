@@ -0,0 +1,120 @@
+package com.company;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The checks of the indexed heap against the map of the handles to their keys
+ */
+class IndexedHeapTest {
+
+    /**
+     * Get the least key of the entries
+     * @param keys the keys of the entries by their handles
+     * @return the least key
+     */
+    static long least(Map<Integer, Long> keys) {
+        return keys.values().stream().mapToLong(Long::longValue).min().getAsLong();
+    }
+
+    @Test
+    void keyChangesAndRemovalsByHandleKeepTheOrder() {
+        Random random = new Random(16);
+        for (int round = 0; round < 100; round++) {
+            IndexedHeap heap = new IndexedHeap(1 + random.nextInt(4));
+            Map<Integer, Long> keys = new HashMap<>();
+            List<Integer> handles = new ArrayList<>();
+
+            for (int step = 0; step < 500; step++) {
+                int operation = random.nextInt(6);
+                if (keys.isEmpty() || operation == 0) {
+                    long key = random.nextInt(1000);
+                    int handle = heap.offer(key);
+                    // the handle of the removed entry is given again
+                    assertFalse(keys.containsKey(handle));
+                    keys.put(handle, key);
+                    handles.add(handle);
+                } else {
+                    int handle = handles.get(random.nextInt(handles.size()));
+                    long key = keys.get(handle);
+                    switch (operation) {
+                        case 1:
+                            long less = key - random.nextInt(100);
+                            heap.decreaseKey(handle, less);
+                            keys.put(handle, less);
+                            break;
+                        case 2:
+                            long greater = key + random.nextInt(100);
+                            heap.increaseKey(handle, greater);
+                            keys.put(handle, greater);
+                            break;
+                        case 3:
+                            long any = random.nextInt(1000);
+                            heap.update(handle, any);
+                            keys.put(handle, any);
+                            break;
+                        case 4:
+                            heap.remove(handle);
+                            keys.remove(handle);
+                            handles.remove((Integer) handle);
+                            assertFalse(heap.contains(handle));
+                            break;
+                        default:
+                            assertEquals(least(keys), heap.peekKey());
+                            int polled = heap.poll();
+                            assertEquals(least(keys), (long) keys.remove(polled));
+                            handles.remove((Integer) polled);
+                    }
+                }
+
+                assertEquals(keys.size(), heap.size());
+                for (Map.Entry<Integer, Long> entry: keys.entrySet()) {
+                    assertTrue(heap.contains(entry.getKey()));
+                    assertEquals((long) entry.getValue(), heap.key(entry.getKey()));
+                }
+                if (!keys.isEmpty()) {
+                    assertEquals(least(keys), heap.peekKey());
+                    assertEquals(heap.peekKey(), heap.key(heap.peekHandle()));
+                }
+            }
+
+            long previous = Long.MIN_VALUE;
+            while (!heap.isEmpty()) {
+                long key = heap.peekKey();
+                assertTrue(key >= previous);
+                assertEquals(key, (long) keys.remove(heap.poll()));
+                previous = key;
+            }
+            assertTrue(keys.isEmpty());
+        }
+    }
+
+    @Test
+    void wrongHandlesAndKeysAreRejected() {
+        IndexedHeap heap = new IndexedHeap();
+        int first = heap.offer(5);
+        int second = heap.offer(7);
+
+        assertThrows(IllegalArgumentException.class, () -> heap.decreaseKey(first, 6));
+        assertThrows(IllegalArgumentException.class, () -> heap.increaseKey(second, 6));
+        heap.remove(first);
+        assertThrows(NoSuchElementException.class, () -> heap.remove(first));
+        assertThrows(NoSuchElementException.class, () -> heap.key(first));
+        assertThrows(NoSuchElementException.class, () -> heap.update(-1, 0));
+        assertThrows(NoSuchElementException.class, () -> heap.decreaseKey(42, 0));
+
+        assertEquals(second, heap.poll());
+        assertThrows(NoSuchElementException.class, heap::poll);
+        assertThrows(NoSuchElementException.class, heap::peekKey);
+    }
+}
@@ -0,0 +1,166 @@
+package com.company;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The checks of the lazy removal against the same removals made at once
+ */
+class LazyRemovalTest extends TreeTest {
+
+    @Test
+    void lazyRemovalMatchesEagerRemoval() {
+        Random random = new Random(1);
+        for (int round = 0; round < 200; round++) {
+            BinaryTree eager = new BinaryTree();
+            BinaryTree lazy = new BinaryTree();
+            lazy.enableLazyRemoval(0.1 + 0.9 * random.nextDouble());
+            if (random.nextBoolean()) {
+                lazy.enableIndex();
+            }
+
+            int count = random.nextInt(100);
+            for (int i = 0; i < count; i++) {
+                int value = random.nextInt(20);
+                eager.pushNode(value);
+                lazy.pushNode(value);
+            }
+            for (int i = random.nextInt(count + 1); i > 0; i--) {
+                int value = random.nextInt(20);
+                if (eager.contains(value)) {
+                    eager.remove(value);
+                    lazy.remove(value);
+                }
+                assertEquals(eager.size(), lazy.size());
+                assertEquals(eager.contains(value), lazy.contains(value));
+            }
+            assertArrayEquals(sorted(eager), sorted(lazy));
+            assertArrayEquals(eager.stream().sorted().toArray(), lazy.stream().sorted().toArray());
+
+            lazy.restore();
+            assertTrue(lazy.isCompleteTree());
+            assertArrayEquals(sorted(eager), sorted(lazy));
+        }
+    }
+
+    @Test
+    void lazyRemovalMatchesEagerRemovalInHeap() {
+        Random random = new Random(2);
+        for (int round = 0; round < 200; round++) {
+            Heap eager = new Heap();
+            Heap lazy = new Heap();
+            lazy.enableLazyRemoval(0.1 + 0.9 * random.nextDouble());
+
+            for (int i = 0; i < 300; i++) {
+                int value = random.nextInt(30);
+                switch (random.nextInt(5)) {
+                    case 0:
+                        if (eager.contains(value)) {
+                            eager.remove(value);
+                            lazy.remove(value);
+                        }
+                        break;
+                    case 1:
+                        if (eager.size() > 0) {
+                            assertEquals(eager.poll(), lazy.poll());
+                        }
+                        break;
+                    case 2:
+                        if (eager.size() > 0) {
+                            assertEquals(eager.peek(), lazy.peek());
+                        }
+                        break;
+                    default:
+                        eager.offer(value);
+                        lazy.offer(value);
+                }
+                assertEquals(eager.size(), lazy.size());
+            }
+            assertArrayEquals(sorted(eager), sorted(lazy));
+            while (eager.size() > 0) {
+                assertEquals(eager.poll(), lazy.poll());
+            }
+        }
+    }
+
+    @Test
+    void traversalsSkipRemovedValuesWithoutCompacting() throws Exception {
+        BinaryTree tree = new BinaryTree(new int[]{5, 3, 5, 1, 4});
+        tree.enableLazyRemoval(1);
+        tree.remove(5);
+
+        assertArrayEquals(new int[]{3, 5, 1, 4}, tree.stream().toArray());
+        assertArrayEquals(new int[]{1, 3, 4, 5}, sorted(tree));
+        StringBuilder text = new StringBuilder();
+        tree.printLevelOrder(text, Integer.MAX_VALUE, Long.MAX_VALUE);
+        StringBuilder expected = new StringBuilder();
+        new BinaryTree(new int[]{3, 5, 1, 4}).printLevelOrder(expected, Integer.MAX_VALUE, Long.MAX_VALUE);
+        assertEquals(expected.toString(), text.toString());
+
+        // the removed value is still stored
+        assertEquals(5, tree.storedValues().length);
+    }
+
+    @Test
+    void shapeOrdersFollowTheTreeLeftByCompaction() {
+        Random random = new Random(3);
+        for (int round = 0; round < 200; round++) {
+            int[] values = random.ints(1 + random.nextInt(40), 0, 8).toArray();
+            BinaryTree tree = new BinaryTree(values);
+            tree.enableLazyRemoval(1);
+            for (int i = random.nextInt(values.length); i > 0; i--) {
+                int value = random.nextInt(8);
+                if (tree.contains(value)) {
+                    tree.remove(value);
+                }
+            }
+
+            BinaryTree live = tree.liveTree();
+            assertArrayEquals(toArray(live.inOrder()), toArray(tree.inOrder()));
+            assertArrayEquals(toArray(live.preOrder()), toArray(tree.preOrder()));
+            assertArrayEquals(live.stream(BinaryTree.Traversal.IN_ORDER).toArray(),
+                    tree.stream(BinaryTree.Traversal.IN_ORDER).toArray());
+        }
+    }
+
+    /**
+     * Get the rest of the values of the iterator
+     * @param values the iterator
+     * @return the values in the order of the iterator
+     */
+    static int[] toArray(PrimitiveIterator.OfInt values) {
+        IntStream.Builder builder = IntStream.builder();
+        values.forEachRemaining((IntConsumer) builder::add);
+        return builder.build().toArray();
+    }
+
+    @Test
+    void compactionRatioCountsTheValuesLeft() {
+        BinaryTree tree = new BinaryTree(new int[]{1, 2, 3, 4, 5, 6});
+        tree.enableLazyRemoval(0.5);
+        tree.remove(1);
+        assertEquals(6, tree.storedValues().length);
+
+        // 2 removed values for 4 values left reach the ratio of one removed value for two left
+        tree.remove(2);
+        assertArrayEquals(new int[]{3, 4, 5, 6}, tree.storedValues());
+    }
+
+    @Test
+    void removingAbsentValueIsReported() {
+        BinaryTree tree = new BinaryTree(new int[]{1, 2, 3});
+        tree.enableLazyRemoval(0.5);
+        tree.remove(2);
+        tree.remove(2);
+
+        assertEquals("cannot remove, the value is not present" + System.lineSeparator(), output.toString());
+        assertEquals(2, tree.size());
+    }
+}
@@ -0,0 +1,87 @@
+package com.company;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.PriorityQueue;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * The checks of the heap stored in the file against PriorityQueue, across the reopening of the file
+ */
+class MappedHeapTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void reopenedHeapKeepsItsValues() throws IOException {
+        Path file = directory.resolve("heap.bin");
+        Random random = new Random(13);
+        PriorityQueue<Integer> expected = new PriorityQueue<>();
+        for (int round = 0; round < 5; round++) {
+            // the small chunks make the heap map the file again while it grows
+            try (MappedHeap heap = new MappedHeap(file, 6)) {
+                assertEquals(expected.size(), heap.size());
+                for (int step = 0; step < 500; step++) {
+                    int value = random.nextInt(100);
+                    if (random.nextInt(3) == 0 && !expected.isEmpty()) {
+                        assertEquals((int) expected.poll(), heap.poll());
+                    } else if (random.nextInt(10) == 0) {
+                        int[] values = random.ints(random.nextInt(50), 0, 100).toArray();
+                        heap.pushAll(values);
+                        for (int v: values) {
+                            expected.add(v);
+                        }
+                    } else {
+                        heap.offer(value);
+                        expected.add(value);
+                    }
+                }
+            }
+        }
+
+        try (MappedHeap heap = new MappedHeap(file)) {
+            while (!expected.isEmpty()) {
+                assertEquals((int) expected.poll(), heap.poll());
+            }
+        }
+    }
+
+    @Test
+    void foreignFileIsRejected() throws IOException {
+        Path garbage = directory.resolve("garbage.bin");
+        Files.write(garbage, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17});
+        IOException thrown = assertThrows(IOException.class, () -> new MappedHeap(garbage));
+        assertEquals("the file is not a heap storage", thrown.getMessage());
+
+        Path file = directory.resolve("heap.bin");
+        try (MappedHeap heap = new MappedHeap(file)) {
+            heap.offer(1);
+        }
+        // the size bigger than the file
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[15] = 0x7F;
+        Files.write(file, bytes);
+        thrown = assertThrows(IOException.class, () -> new MappedHeap(file));
+        assertEquals("the heap storage is truncated", thrown.getMessage());
+    }
+
+    @Test
+    void closedHeapCannotBeUsed() throws IOException {
+        MappedHeap heap = new MappedHeap(directory.resolve("heap.bin"));
+        heap.offer(1);
+        heap.close();
+        heap.close();
+
+        assertThrows(IllegalStateException.class, heap::peek);
+        assertThrows(IllegalStateException.class, heap::poll);
+        assertThrows(IllegalStateException.class, () -> heap.offer(2));
+        assertThrows(IllegalStateException.class, () -> heap.replaceTop(2));
+    }
+}
@@ -0,0 +1,109 @@
+package com.company;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The checks of the relaxed multi-queue drained while the producers are adding the values
+ */
+class MultiQueueTest {
+
+    static final int PRODUCERS = 4;
+
+    static final int CONSUMERS = 4;
+
+    static final int PER_PRODUCER = 50_000;
+
+    @Test
+    void drainingUnderConcurrentProducersTakesEachValueOnce() throws Exception {
+        for (boolean affinity: new boolean[]{false, true}) {
+            MultiQueue queue = new MultiQueue(8);
+            queue.setAffinity(affinity);
+            int total = PRODUCERS * PER_PRODUCER;
+            AtomicIntegerArray taken = new AtomicIntegerArray(total);
+            AtomicInteger polled = new AtomicInteger();
+            CountDownLatch start = new CountDownLatch(1);
+
+            ExecutorService threads = Executors.newFixedThreadPool(PRODUCERS + CONSUMERS);
+            try {
+                Future<?>[] tasks = new Future<?>[PRODUCERS + CONSUMERS];
+                for (int p = 0; p < PRODUCERS; p++) {
+                    int first = p * PER_PRODUCER;
+                    tasks[p] = threads.submit(() -> {
+                        start.await();
+                        for (int value = first; value < first + PER_PRODUCER; value++) {
+                            queue.offer(value);
+                        }
+                        return null;
+                    });
+                }
+                for (int c = 0; c < CONSUMERS; c++) {
+                    tasks[PRODUCERS + c] = threads.submit(() -> {
+                        start.await();
+                        // the queue is empty now and then, while the producers are behind
+                        while (polled.get() < total) {
+                            try {
+                                taken.incrementAndGet(queue.poll());
+                                polled.incrementAndGet();
+                            } catch (NoSuchElementException e) {
+                                Thread.onSpinWait();
+                            }
+                        }
+                        return null;
+                    });
+                }
+                start.countDown();
+                for (Future<?> task: tasks) {
+                    task.get(60, TimeUnit.SECONDS);
+                }
+            } finally {
+                threads.shutdownNow();
+            }
+
+            assertEquals(total, polled.get());
+            for (int value = 0; value < total; value++) {
+                assertEquals(1, taken.get(value));
+            }
+            assertEquals(0, queue.size());
+            assertTrue(queue.isEmpty());
+            assertThrows(NoSuchElementException.class, queue::poll);
+        }
+    }
+
+    @Test
+    void singleThreadTakesAllValuesCloseToTheOrder() {
+        MultiQueue queue = new MultiQueue(4);
+        queue.setMetricsEnabled(true);
+        int[] values = IntStream.range(0, 10_000).map(i -> (i * 7919) % 10_000).toArray();
+        for (int value: values) {
+            queue.offer(value);
+        }
+        assertEquals(values.length, queue.size());
+
+        int[] drained = new int[values.length];
+        for (int i = 0; i < drained.length; i++) {
+            drained[i] = queue.poll();
+        }
+        Arrays.sort(values);
+        Arrays.sort(drained);
+        assertArrayEquals(values, drained);
+
+        // the removed value can be beaten only by the tops of the other shards
+        assertTrue(queue.getMaxRankError() < queue.shardCount());
+        assertThrows(IllegalArgumentException.class, () -> new MultiQueue(1));
+    }
+}
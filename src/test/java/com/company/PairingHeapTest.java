@@ -0,0 +1,113 @@
+package com.company;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The checks of the pairing heap and of the meld of two heaps against PriorityQueue
+ */
+class PairingHeapTest {
+
+    @Test
+    void meldFollowedByPollsMatchesPriorityQueue() {
+        Random random = new Random(17);
+        for (int round = 0; round < 200; round++) {
+            int[] initial = random.ints(random.nextInt(100), 0, 50).toArray();
+            PairingHeap heap = new PairingHeap(initial);
+            PriorityQueue<Integer> expected = new PriorityQueue<>();
+            for (int value: initial) {
+                expected.add(value);
+            }
+
+            for (int step = 0; step < 50; step++) {
+                switch (random.nextInt(4)) {
+                    case 0:
+                        int[] values = random.ints(random.nextInt(30), 0, 50).toArray();
+                        PairingHeap other = new PairingHeap(values);
+                        for (int value: values) {
+                            expected.add(value);
+                        }
+                        heap.meld(other);
+                        assertTrue(other.isEmpty());
+                        assertEquals(0, other.size());
+                        break;
+                    case 1:
+                        if (!expected.isEmpty()) {
+                            assertEquals((int) expected.poll(), heap.poll());
+                        }
+                        break;
+                    default:
+                        int value = random.nextInt(50);
+                        heap.offer(value);
+                        expected.add(value);
+                }
+                assertEquals(expected.size(), heap.size());
+                if (!expected.isEmpty()) {
+                    assertEquals((int) expected.peek(), heap.peek());
+                }
+            }
+
+            while (!expected.isEmpty()) {
+                assertEquals((int) expected.poll(), heap.poll());
+            }
+            assertTrue(heap.isEmpty());
+        }
+    }
+
+    @Test
+    void meldOfBinaryHeapsMatchesPriorityQueue() {
+        Random random = new Random(18);
+        for (int round = 0; round < 200; round++) {
+            // both the small heap added value by value and the large one heapified
+            int[] first = random.ints(random.nextInt(200), 0, 50).toArray();
+            int[] second = random.ints(random.nextInt(200), 0, 50).toArray();
+            Heap heap = new Heap(first);
+            Heap other = new Heap(second);
+            PriorityQueue<Integer> expected = new PriorityQueue<>();
+            for (int value: first) {
+                expected.add(value);
+            }
+            for (int value: second) {
+                expected.add(value);
+            }
+
+            heap.meld(other);
+            assertEquals(0, other.size());
+            assertEquals(expected.size(), heap.size());
+            while (!expected.isEmpty()) {
+                assertEquals((int) expected.poll(), heap.poll());
+            }
+        }
+    }
+
+    @Test
+    void emptyAndSelfMeldAreRejected() {
+        PairingHeap heap = new PairingHeap();
+        assertThrows(NoSuchElementException.class, heap::peek);
+        assertThrows(NoSuchElementException.class, heap::poll);
+        assertThrows(IllegalArgumentException.class, () -> heap.meld(heap));
+
+        heap.meld(new PairingHeap(new int[]{3, 1, 2}));
+        assertEquals(1, heap.poll());
+        assertEquals(2, heap.poll());
+        assertEquals(3, heap.poll());
+    }
+
+    @Test
+    void longSiblingListsArePolledWithoutRecursion() {
+        // the increasing values all become children of the first root
+        PairingHeap heap = new PairingHeap();
+        for (int i = 0; i < 1_000_000; i++) {
+            heap.offer(i);
+        }
+        for (int i = 0; i < 1_000_000; i++) {
+            assertEquals(i, heap.poll());
+        }
+    }
+}
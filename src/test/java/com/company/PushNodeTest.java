@@ -0,0 +1,75 @@
+package com.company;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The checks of the place of the pushed node in the linked tree against the breadth first search,
+ * which picks the parent by its number in level order
+ */
+class PushNodeTest extends TreeTest {
+
+    @Test
+    void pushedNodeGoesWhereTheSearchFindsItsParent() {
+        Random random = new Random(19);
+        int incomplete = 0;
+        for (int round = 0; round < 300; round++) {
+            BinaryTree tree = new BinaryTree(random.ints(2 + random.nextInt(60), 0, 100).toArray());
+            // the node, which starts a new level before the last one is full, makes the tree linked
+            if (Integer.bitCount(tree.size() + 1) != 1) {
+                tree.insertNode(random.nextInt(100), tree.treeHeight() + 1, 1);
+            }
+
+            for (int step = 0; step < 30 && !tree.implicit; step++) {
+                if (random.nextInt(3) == 0) {
+                    int level = 1 + random.nextInt(tree.treeHeight() + 1);
+                    tree.insertNode(random.nextInt(100), level, 1 + random.nextInt(1 << (level - 1)));
+                    continue;
+                }
+                if (!tree.isCompleteTree()) {
+                    incomplete ++;
+                }
+
+                // the parent is the node with the number (size + 1) / 2 in level order, counting from 1
+                BinaryTree.Node parent = null;
+                Queue<BinaryTree.Node> nodes = new ArrayDeque<>();
+                nodes.add(tree.root);
+                for (int i = 1; !nodes.isEmpty(); i++) {
+                    BinaryTree.Node node = nodes.remove();
+                    if (i == (tree.size() + 1) / 2) {
+                        parent = node;
+                        break;
+                    }
+                    if (node.left != null) {
+                        nodes.add(node.left);
+                    }
+                    if (node.right != null) {
+                        nodes.add(node.right);
+                    }
+                }
+                BinaryTree.Node left = parent == null ? null : parent.left;
+                BinaryTree.Node right = parent == null ? null : parent.right;
+
+                int size = tree.size();
+                int value = 100 + step;
+                tree.pushNode(value);
+                if (parent == null || (left != null && right != null)) {
+                    assertEquals(size, tree.size());
+                } else if (left == null) {
+                    assertEquals(value, parent.left.value);
+                    assertSame(right, parent.right);
+                } else {
+                    assertSame(left, parent.left);
+                    assertEquals(value, parent.right.value);
+                }
+            }
+        }
+        assertTrue(incomplete > 500);
+    }
+}
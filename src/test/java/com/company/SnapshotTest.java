@@ -0,0 +1,102 @@
+package com.company;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * The checks of the snapshot round trip of the trees built with pushNode and remove
+ */
+class SnapshotTest extends TreeTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void snapshotKeepsTheTree() throws IOException {
+        Random random = new Random(5);
+        Path file = directory.resolve("tree.snapshot");
+        for (int round = 0; round < 100; round++) {
+            BinaryTree tree = new BinaryTree();
+            int count = random.nextInt(200);
+            for (int i = 0; i < count; i++) {
+                tree.pushNode(random.nextInt(50));
+            }
+            // the removals make the tree incomplete, so its shape is written too
+            for (int i = random.nextInt(10); i > 0; i--) {
+                int value = random.nextInt(50);
+                if (tree.contains(value)) {
+                    tree.remove(value);
+                }
+            }
+
+            tree.writeSnapshot(file);
+            BinaryTree read = new BinaryTree();
+            read.readSnapshot(file);
+
+            assertEquals(tree.size(), read.size());
+            assertEquals(tree.isCompleteTree(), read.isCompleteTree());
+            assertEquals(tree.treeHeight(), read.treeHeight());
+            assertArrayEquals(tree.getValuesOfTheTree(), read.getValuesOfTheTree());
+            assertArrayEquals(tree.stream(BinaryTree.Traversal.IN_ORDER).toArray(),
+                    read.stream(BinaryTree.Traversal.IN_ORDER).toArray());
+        }
+    }
+
+    @Test
+    void snapshotKeepsTheHeap() throws IOException {
+        Random random = new Random(6);
+        Path file = directory.resolve("heap.snapshot");
+        for (int round = 0; round < 100; round++) {
+            Heap heap = new Heap(random.ints(random.nextInt(200), 0, 50).toArray());
+            for (int i = random.nextInt(10); i > 0; i--) {
+                int value = random.nextInt(50);
+                if (heap.contains(value)) {
+                    heap.remove(value);
+                }
+            }
+
+            heap.writeSnapshot(file);
+            Heap read = new Heap();
+            read.readSnapshot(file);
+
+            assertEquals(heap.size(), read.size());
+            assertArrayEquals(heap.getValuesOfTheTree(), read.getValuesOfTheTree());
+            while (heap.size() > 0) {
+                assertEquals(heap.poll(), read.poll());
+            }
+        }
+    }
+
+    @Test
+    void brokenHeightIsRejected() throws IOException {
+        Path file = directory.resolve("tree.snapshot");
+        BinaryTree complete = new BinaryTree(new int[]{1, 2, 3, 4, 5});
+        // the removed node is replaced by the last node of its sub-tree, so the shape is written too
+        BinaryTree incomplete = new BinaryTree(new int[]{1, 2, 3, 4, 5, 6});
+        incomplete.remove(2);
+        assertFalse(incomplete.isCompleteTree());
+
+        for (BinaryTree tree: new BinaryTree[]{complete, incomplete}) {
+            tree.writeSnapshot(file);
+            byte[] bytes = Files.readAllBytes(file);
+            // the height follows the magic number, the version, the flags and the size
+            bytes[16] ++;
+            Files.write(file, bytes);
+
+            BinaryTree read = new BinaryTree(new int[]{7, 8});
+            IOException thrown = assertThrows(IOException.class, () -> read.readSnapshot(file));
+            assertEquals("the height of the tree snapshot is broken", thrown.getMessage());
+            // the tree is left as it was
+            assertArrayEquals(new int[]{7, 8}, read.getValuesOfTheTree());
+        }
+    }
+}
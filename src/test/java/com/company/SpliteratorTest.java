@@ -0,0 +1,177 @@
+package com.company;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The checks of the recursive splitting of the in-order and pre-order spliterators
+ * against the recursive traversal of the tree
+ */
+class SpliteratorTest extends TreeTest {
+
+    @Test
+    void splitsOfTheCompleteTreeKeepTheOrderAndExactSizes() {
+        Random random = new Random(11);
+        for (int round = 0; round < 200; round++) {
+            BinaryTree tree = new BinaryTree(random.ints(random.nextInt(300), 0, 1000).toArray());
+            assertTrue(tree.implicit);
+            for (boolean inOrder: new boolean[]{true, false}) {
+                Spliterator.OfInt values = tree.spliterator(order(inOrder));
+                assertTrue(values.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED));
+
+                IntStream.Builder split = IntStream.builder();
+                collect(values, split, true);
+                assertArrayEquals(traverse(tree, inOrder), split.build().toArray());
+            }
+        }
+    }
+
+    @Test
+    void splitsOfTheLinkedTreeKeepTheOrderAndReportedSizes() {
+        Random random = new Random(12);
+        int checked = 0;
+        for (int round = 0; round < 200; round++) {
+            BinaryTree tree = new BinaryTree(random.ints(2 + random.nextInt(100), 0, 1000).toArray());
+            // the node, which starts a new level before the last one is full, makes the tree incomplete and linked
+            if (Integer.bitCount(tree.size() + 1) != 1) {
+                tree.insertNode(random.nextInt(1000), tree.treeHeight() + 1, 1);
+            }
+            for (int i = random.nextInt(20); i >= 0; i--) {
+                int level = 1 + random.nextInt(tree.treeHeight() + 1);
+                tree.insertNode(random.nextInt(1000), level, 1 + random.nextInt(1 << (level - 1)));
+                if (random.nextInt(4) == 0) {
+                    tree.remove(tree.getValuesOfTheTree()[random.nextInt(tree.size())]);
+                }
+            }
+            if (tree.implicit || tree.isCompleteTree()) {
+                continue;
+            }
+            checked ++;
+
+            for (boolean inOrder: new boolean[]{true, false}) {
+                Spliterator.OfInt values = tree.spliterator(order(inOrder));
+                assertEquals(tree.size(), values.getExactSizeIfKnown());
+
+                IntStream.Builder split = IntStream.builder();
+                collect(values, split, false);
+                assertArrayEquals(traverse(tree, inOrder), split.build().toArray());
+            }
+        }
+        assertTrue(checked > 100);
+    }
+
+    @Test
+    void singleValueIsNotSplit() {
+        BinaryTree tree = new BinaryTree(new int[]{7});
+        Spliterator.OfInt values = tree.spliterator(BinaryTree.Traversal.IN_ORDER);
+        assertEquals(null, values.trySplit());
+        assertEquals(1, values.getExactSizeIfKnown());
+    }
+
+    /**
+     * Get the traversal of the order
+     * @param inOrder specify if the values are taken in order, otherwise in pre-order
+     * @return the traversal
+     */
+    static BinaryTree.Traversal order(boolean inOrder) {
+        return inOrder ? BinaryTree.Traversal.IN_ORDER : BinaryTree.Traversal.PRE_ORDER;
+    }
+
+    /**
+     * Used to split the spliterator as deep as it goes and take the values of the parts in order,
+     * the size of each part reported as exact must be the number of its values
+     * @param values the spliterator
+     * @param result the values taken
+     * @param subsized specify if the parts must be sized as well
+     */
+    static void collect(Spliterator.OfInt values, IntStream.Builder result, boolean subsized) {
+        long size = values.getExactSizeIfKnown();
+        Spliterator.OfInt prefix = values.trySplit();
+        if (prefix != null) {
+            long prefixSize = prefix.getExactSizeIfKnown();
+            long suffixSize = values.getExactSizeIfKnown();
+            if (subsized) {
+                assertTrue(prefixSize > 0 && suffixSize > 0);
+                assertEquals(size, prefixSize + suffixSize);
+            }
+            collect(prefix, result, subsized);
+            collect(values, result, subsized);
+            return;
+        }
+
+        long[] count = new long[1];
+        values.forEachRemaining((int value) -> {
+            count[0] ++;
+            result.add(value);
+        });
+        if (size >= 0) {
+            assertEquals(size, count[0]);
+        }
+        assertFalse(subsized && size < 0);
+    }
+
+    /**
+     * Get the values of the tree by the recursive traversal of its shape
+     * @param tree the tree
+     * @param inOrder specify if the values are taken in order, otherwise in pre-order
+     * @return the values
+     */
+    static int[] traverse(BinaryTree tree, boolean inOrder) {
+        IntStream.Builder result = IntStream.builder();
+        if (tree.implicit) {
+            traverse(tree.elements, tree.size(), 0, inOrder, result);
+        } else {
+            traverse(tree.root, inOrder, result);
+        }
+        return result.build().toArray();
+    }
+
+    /**
+     * Used to traverse the sub-tree of the level-order array
+     * @param elements the level-order values
+     * @param size the number of values
+     * @param position the position of the sub-tree root
+     * @param inOrder specify if the values are taken in order, otherwise in pre-order
+     * @param result the values taken
+     */
+    static void traverse(int[] elements, int size, int position, boolean inOrder, IntStream.Builder result) {
+        if (position >= size) {
+            return;
+        }
+        if (!inOrder) {
+            result.add(elements[position]);
+        }
+        traverse(elements, size, 2 * position + 1, inOrder, result);
+        if (inOrder) {
+            result.add(elements[position]);
+        }
+        traverse(elements, size, 2 * position + 2, inOrder, result);
+    }
+
+    /**
+     * Used to traverse the linked sub-tree
+     * @param node the sub-tree root
+     * @param inOrder specify if the values are taken in order, otherwise in pre-order
+     * @param result the values taken
+     */
+    static void traverse(BinaryTree.Node node, boolean inOrder, IntStream.Builder result) {
+        if (node == null) {
+            return;
+        }
+        if (!inOrder) {
+            result.add(node.value);
+        }
+        traverse(node.left, inOrder, result);
+        if (inOrder) {
+            result.add(node.value);
+        }
+        traverse(node.right, inOrder, result);
+    }
+}
@@ -0,0 +1,88 @@
+package com.company;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The checks of the top-K selector against the full sort of the values
+ */
+class TopKTest {
+
+    /**
+     * Get the K best values by the full sort
+     * @param values the values
+     * @param capacity the number of values to be selected
+     * @param largest specify if the largest values are selected, otherwise the least ones
+     * @return the selected values from the best to the worst one
+     */
+    static int[] expected(int[] values, int capacity, boolean largest) {
+        int[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int count = Math.min(capacity, sorted.length);
+        int[] result = new int[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = largest ? sorted[sorted.length - 1 - i] : sorted[i];
+        }
+        return result;
+    }
+
+    @Test
+    void selectionMatchesFullSort() {
+        Random random = new Random(14);
+        for (int round = 0; round < 300; round++) {
+            int[] values = round % 10 == 0
+                    ? random.ints(random.nextInt(2000)).toArray()
+                    : random.ints(random.nextInt(2000), -50, 50).toArray();
+            int capacity = 1 + random.nextInt(100);
+            boolean largest = random.nextBoolean();
+            int[] expected = expected(values, capacity, largest);
+
+            TopK sequential = TopK.of(values, capacity, largest, false);
+            assertArrayEquals(expected, sequential.toArray());
+            assertArrayEquals(expected, TopK.of(values, capacity, largest, true).toArray());
+            assertArrayEquals(expected, TopK.of(Arrays.stream(values), capacity, largest).toArray());
+            assertEquals(expected.length, sequential.size());
+            if (expected.length > 0) {
+                assertEquals(expected[expected.length - 1], sequential.peek());
+            }
+        }
+    }
+
+    @Test
+    void mergeKeepsTheBestOfBoth() {
+        Random random = new Random(15);
+        for (int round = 0; round < 100; round++) {
+            int[] values = random.ints(random.nextInt(500), -100, 100).toArray();
+            int split = random.nextInt(values.length + 1);
+            boolean largest = random.nextBoolean();
+            TopK first = new TopK(10, largest);
+            TopK second = new TopK(10, largest);
+            first.accept(values, 0, split);
+            second.accept(values, split, values.length);
+
+            first.merge(second);
+            assertArrayEquals(expected(values, 10, largest), first.toArray());
+        }
+        assertThrows(IllegalArgumentException.class, () -> new TopK(1, true).merge(new TopK(1, false)));
+    }
+
+    @Test
+    void extremeValuesAndClear() {
+        TopK least = new TopK(2, false);
+        least.accept(new int[]{Integer.MAX_VALUE, Integer.MIN_VALUE, 0, -1}, 0, 4);
+        assertArrayEquals(new int[]{Integer.MIN_VALUE, -1}, least.toArray());
+
+        least.clear();
+        assertEquals(0, least.size());
+        assertThrows(NoSuchElementException.class, least::peek);
+        least.accept(Integer.MAX_VALUE);
+        assertArrayEquals(new int[]{Integer.MAX_VALUE}, least.toArray());
+        assertThrows(IllegalArgumentException.class, () -> new TopK(0, true));
+    }
+}
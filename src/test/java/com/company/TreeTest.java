@@ -0,0 +1,45 @@
+package com.company;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+
+/**
+ * The base of the tree checks, the messages printed by the tree are kept out of the test output
+ */
+abstract class TreeTest {
+
+    /**
+     * The messages printed by the tree
+     */
+    final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    PrintStream console;
+
+    @BeforeEach
+    void captureOutput() {
+        console = System.out;
+        System.setOut(new PrintStream(output, true));
+    }
+
+    @AfterEach
+    void restoreOutput() {
+        System.setOut(console);
+    }
+
+    /**
+     * Get the values of the tree in ascending order
+     * @param tree the tree
+     * @return the sorted values
+     */
+    static int[] sorted(BinaryTree tree) {
+        int[] values = tree.getValuesOfTheTree();
+        assertEquals(tree.size(), values.length);
+        Arrays.sort(values);
+        return values;
+    }
+}